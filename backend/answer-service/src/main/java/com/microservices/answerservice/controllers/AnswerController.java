@@ -1,10 +1,13 @@
 package com.microservices.answerservice.controllers;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,6 +17,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microservices.answerservice.models.entity.Answer;
 import com.microservices.answerservice.services.AnswerService;
 
@@ -25,12 +30,28 @@ public class AnswerController {
     @Autowired
     private AnswerService service;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping // Nouvelle méthode pour récupérer toutes les réponses
     public ResponseEntity<Iterable<Answer>> getAll() {
         Iterable<Answer> answers = service.findAll();
         return ResponseEntity.ok(answers);
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        StreamingResponseBody body = out -> service.streamAll(answer -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(answer));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @PostMapping
     public ResponseEntity<?> create(@RequestBody Iterable<Answer> answers) {
         answers = ((List<Answer>) answers).stream().map(r -> {
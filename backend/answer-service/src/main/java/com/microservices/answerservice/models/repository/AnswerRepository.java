@@ -1,5 +1,8 @@
 package com.microservices.answerservice.models.repository;
 
+import java.util.stream.Stream;
+
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import com.microservices.answerservice.models.entity.Answer;
@@ -17,4 +20,7 @@ public interface AnswerRepository extends MongoRepository<Answer, String> {
 
     @Query(value = "{'studentId': ?0}", fields = "{'examId': 1}")
     Iterable<Answer> findExamsIdByWithAnswersByStudent(Long studentId);
+
+    @Meta(cursorBatchSize = 500)
+    Stream<Answer> streamAllBy();
 }
@@ -1,5 +1,7 @@
 package com.microservices.answerservice.services;
 
+import java.util.function.Consumer;
+
 import com.microservices.answerservice.models.entity.Answer;
 
 public interface AnswerService {
@@ -11,4 +13,5 @@ public interface AnswerService {
     void deleteById(String id);
     Iterable<Answer> findByStudentId(Long studentId);
     Iterable<Answer> findAll(); // Nouvelle méthode ajoutée
+    void streamAll(Consumer<Answer> consumer);
 }
@@ -7,6 +7,8 @@ import com.microservices.answerservice.models.repository.AnswerRepository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class AnswerServiceImpl implements AnswerService {
@@ -56,4 +58,11 @@ public class AnswerServiceImpl implements AnswerService {
     public Iterable<Answer> findAll() { // Nouvelle implémentation ajoutée
         return repository.findAll();
     }
+
+    @Override
+    public void streamAll(Consumer<Answer> consumer) {
+        try (Stream<Answer> answers = repository.streamAllBy()) {
+            answers.forEach(consumer);
+        }
+    }
 }
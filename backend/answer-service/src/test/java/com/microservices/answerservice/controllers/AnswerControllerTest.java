@@ -9,10 +9,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -50,6 +55,29 @@ public class AnswerControllerTest {
         verify(answerService, times(1)).findAll();
     }
 
+    @Test
+    public void testStream() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Answer> consumer = invocation.getArgument(0);
+            consumer.accept(sampleAnswer);
+            consumer.accept(sampleAnswer);
+            return null;
+        }).when(answerService).streamAll(any());
+
+        MvcResult result = mockMvc.perform(get("/answers/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"text\":\"Test Answer\""));
+    }
+
     @Test
     public void testCreate() throws Exception {
         when(answerService.saveAll(anyIterable())).thenReturn(Arrays.asList(sampleAnswer));
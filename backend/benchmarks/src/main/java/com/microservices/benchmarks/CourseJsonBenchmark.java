@@ -0,0 +1,60 @@
+package com.microservices.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microservices.courseservice.models.entity.Course;
+
+/**
+ * {@code GET /courses/{id}} once the controller has attached the students fetched from
+ * user-service: {@code size} enrolments, students and exams.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CourseJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    @Param({JsonCodecs.DEFAULT, JsonCodecs.WRITER, JsonCodecs.AFTERBURNER, JsonCodecs.BLACKBIRD})
+    private String codec;
+
+    private JsonCodec<Course> json;
+
+    private Course course;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = JsonCodecs.create(codec, Course.class);
+        course = Fixtures.course(1L, size);
+        payload = json.write(course);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return json.write(course);
+    }
+
+    @Benchmark
+    public Course deserialize() throws IOException {
+        return json.read(payload);
+    }
+}
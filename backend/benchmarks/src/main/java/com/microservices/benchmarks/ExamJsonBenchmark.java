@@ -0,0 +1,60 @@
+package com.microservices.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microservices.commonexam.models.entity.Exam;
+
+/**
+ * {@code GET /exams/{id}} and {@code POST /exams}: every question embeds its exam again,
+ * so the payload grows faster than the question count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExamJsonBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int questions;
+
+    @Param({JsonCodecs.DEFAULT, JsonCodecs.WRITER, JsonCodecs.AFTERBURNER, JsonCodecs.BLACKBIRD})
+    private String codec;
+
+    private JsonCodec<Exam> json;
+
+    private Exam exam;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = JsonCodecs.create(codec, Exam.class);
+        exam = Fixtures.exam(1L, questions);
+        payload = json.write(exam);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return json.write(exam);
+    }
+
+    @Benchmark
+    public Exam deserialize() throws IOException {
+        return json.read(payload);
+    }
+}
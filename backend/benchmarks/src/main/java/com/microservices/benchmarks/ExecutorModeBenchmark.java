@@ -0,0 +1,176 @@
+package com.microservices.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+import com.microservices.commonservice.executor.BlockingExecutors;
+import com.microservices.commonservice.executor.ExecutorProperties;
+
+/**
+ * Request throughput of each {@code common.executor.mode} when every request makes a
+ * blocking HTTP call to a downstream that answers after a fixed {@code latencyMs}, the way
+ * course-service waits on answer-service through Feign. Every mode gets the same
+ * {@code threads} limit: a fixed pool for {@code platform}, {@code maxThreads} for
+ * {@code elastic} and a semaphore of that many permits for {@code virtual}, so a
+ * difference comes from the threads themselves and not from how many there are.
+ * {@code virtual} falls back to {@code elastic} below Java 21, check the {@code threads}
+ * line printed at setup.
+ * <pre>
+ * java -jar target/benchmarks.jar ExecutorMode -p latencyMs=20,100 -p threads=50,200
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorModeBenchmark {
+
+    private static final int REQUESTS = 1_000;
+
+    @Param({"platform", "elastic", "virtual"})
+    private String mode;
+
+    @Param({"200"})
+    private int threads;
+
+    @Param({"20"})
+    private long latencyMs;
+
+    private Downstream downstream;
+
+    private HttpClient client;
+
+    private HttpRequest request;
+
+    private ExecutorService executor;
+
+    private Semaphore permits;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        downstream = Downstream.start(latencyMs);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(downstream.uri()).build();
+        if ("platform".equals(mode)) {
+            executor = Executors.newFixedThreadPool(threads);
+        } else {
+            ExecutorProperties properties = new ExecutorProperties();
+            properties.setMode(ExecutorProperties.Mode.valueOf(mode.toUpperCase()));
+            properties.getElastic().setMaxThreads(threads);
+            properties.getElastic().setQueueCapacity(REQUESTS);
+            executor = BlockingExecutors.create(properties, "bench-");
+        }
+        permits = new Semaphore(threads);
+        System.out.println("threads: " + executor.getClass().getSimpleName() + " on Java " + Runtime.version());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        downstream.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public long burst() throws InterruptedException, ExecutionException {
+        List<Future<Integer>> responses = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(executor.submit(this::handle));
+        }
+        long sum = 0;
+        for (Future<Integer> response : responses) {
+            sum += response.get();
+        }
+        return sum;
+    }
+
+    /**
+     * The permit only binds virtual threads, which have no pool size; the pooled modes
+     * never run more than {@code threads} tasks at once anyway.
+     */
+    private int handle() throws IOException, InterruptedException {
+        permits.acquire();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Answers every request after {@code latencyMs}, on as many threads as
+     * there are requests waiting, so it is never the limit.
+     */
+    private static final class Downstream {
+
+        private static final byte[] BODY = "[1,2,3]".getBytes();
+
+        private final HttpServer server;
+
+        private final ExecutorService workers = Executors.newCachedThreadPool();
+
+        private Downstream(long latencyMs) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1_000);
+            server.createContext("/answers", exchange -> {
+                try {
+                    Thread.sleep(latencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, BODY.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(BODY);
+                }
+            });
+            server.setExecutor(workers);
+        }
+
+        static Downstream start(long latencyMs) throws IOException {
+            Downstream downstream = new Downstream(latencyMs);
+            downstream.server.start();
+            return downstream;
+        }
+
+        URI uri() {
+            return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/answers");
+        }
+
+        void stop() {
+            server.stop(0);
+            workers.shutdownNow();
+        }
+    }
+}
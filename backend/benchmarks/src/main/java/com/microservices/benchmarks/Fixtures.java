@@ -0,0 +1,124 @@
+package com.microservices.benchmarks;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import com.microservices.commonexam.models.entity.Exam;
+import com.microservices.commonexam.models.entity.Question;
+import com.microservices.commonexam.models.entity.Subject;
+import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.courseservice.models.entity.Course;
+import com.microservices.courseservice.models.entity.CourseStudent;
+
+/**
+ * Entity graphs shaped like what the controllers serialize: back references set, the
+ * {@code @Transient} fields filled in the way the controllers fill them.
+ */
+public final class Fixtures {
+
+    private static final long TOTAL_ELEMENTS = 10_000;
+
+    private Fixtures() {
+    }
+
+    public static Exam exam(long id, int questions) {
+        Subject father = new Subject();
+        father.setId(1L);
+        father.setName("Mathematics");
+        Subject child = new Subject();
+        child.setId(2L);
+        child.setName("Algebra");
+        child.setFather(father);
+
+        Exam exam = new Exam();
+        exam.setId(id);
+        exam.setVersion(3L);
+        exam.setName("Exam " + id);
+        exam.setCreatedAt(new Date());
+        exam.setSubjectFather(father);
+        exam.setSubjectChildren(child);
+        List<Question> list = new ArrayList<>(questions);
+        for (int i = 0; i < questions; i++) {
+            Question question = new Question();
+            question.setId(id * 1_000 + i);
+            question.setText("Question " + i + " of exam " + id + ": what is " + i + " + " + i + "?");
+            question.setCreatedAt(new Date());
+            list.add(question);
+        }
+        exam.setQuestions(list);
+        return exam;
+    }
+
+    public static Student student(long id, int imageBytes) {
+        Student student = new Student();
+        student.setId(id);
+        student.setVersion(1L);
+        student.setName("Student" + id);
+        student.setLastName("Lastname" + id);
+        student.setEmail("student" + id + "@example.com");
+        student.setCreatedAt(new Date());
+        if (imageBytes > 0) {
+            byte[] image = new byte[imageBytes];
+            new Random(id).nextBytes(image);
+            student.setImageSize((long) image.length);
+            student.setImageContentType("image/jpeg");
+            student.setImageDigest(sha256(image));
+        }
+        return student;
+    }
+
+    /**
+     * {@code size} course students, students and exams; each exam has five questions.
+     */
+    public static Course course(long id, int size) {
+        Course course = new Course();
+        course.setId(id);
+        course.setVersion(7L);
+        course.setName("Course " + id);
+        course.setDescription("Description of course " + id);
+        course.setCreatedAt(new Date());
+        for (int i = 0; i < size; i++) {
+            CourseStudent courseStudent = new CourseStudent();
+            courseStudent.setId((long) i);
+            courseStudent.setStudentId((long) i);
+            courseStudent.setCourse(course);
+            course.addCourseStudent(courseStudent);
+            course.addStudent(student(i, 0));
+            course.addExams(exam(i, 5));
+        }
+        return course;
+    }
+
+    public static Page<Exam> examPage(int size, int questions) {
+        List<Exam> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            content.add(exam(i, questions));
+        }
+        return new PageImpl<>(content, PageRequest.of(0, size), TOTAL_ELEMENTS);
+    }
+
+    public static Page<Student> studentPage(int size, int imageBytes) {
+        List<Student> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            content.add(student(i, imageBytes));
+        }
+        return new PageImpl<>(content, PageRequest.of(0, size), TOTAL_ELEMENTS);
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
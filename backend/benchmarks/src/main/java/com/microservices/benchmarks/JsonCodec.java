@@ -0,0 +1,10 @@
+package com.microservices.benchmarks;
+
+import java.io.IOException;
+
+public interface JsonCodec<T> {
+
+    byte[] write(T value) throws IOException;
+
+    T read(byte[] json) throws IOException;
+}
@@ -0,0 +1,98 @@
+package com.microservices.benchmarks;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * The ways of turning an entity into JSON that are worth comparing:
+ * <ul>
+ * <li>{@value #DEFAULT}: {@code writeValueAsBytes}/{@code readValue} on a shared mapper, which is
+ * what the controllers end up doing;</li>
+ * <li>{@value #WRITER}: an {@code ObjectWriter}/{@code ObjectReader} built once for the type;</li>
+ * <li>{@value #AFTERBURNER} and {@value #BLACKBIRD}: the same prebuilt writer and reader on a
+ * mapper with the bytecode-generating module registered.</li>
+ * </ul>
+ * Every mapper is configured like the one Spring Boot auto-configures.
+ */
+public final class JsonCodecs {
+
+    public static final String DEFAULT = "default";
+
+    public static final String WRITER = "writer";
+
+    public static final String AFTERBURNER = "afterburner";
+
+    public static final String BLACKBIRD = "blackbird";
+
+    private JsonCodecs() {
+    }
+
+    public static <T> JsonCodec<T> create(String name, Class<T> type) {
+        return create(name, newMapper().constructType(type));
+    }
+
+    public static <T> JsonCodec<T> create(String name, JavaType type) {
+        switch (name) {
+            case DEFAULT:
+                return shared(newMapper(), type);
+            case WRITER:
+                return prebuilt(newMapper(), type);
+            case AFTERBURNER:
+                return prebuilt(newMapper(new AfterburnerModule()), type);
+            case BLACKBIRD:
+                return prebuilt(newMapper(new BlackbirdModule()), type);
+            default:
+                throw new IllegalArgumentException("Unknown codec: " + name);
+        }
+    }
+
+    public static ObjectMapper newMapper(Module... modules) {
+        return JsonMapper.builder()
+                .disable(MapperFeature.DEFAULT_VIEW_INCLUSION)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .addModules(modules)
+                .build();
+    }
+
+    private static <T> JsonCodec<T> shared(ObjectMapper mapper, JavaType type) {
+        return new JsonCodec<T>() {
+            @Override
+            public byte[] write(T value) throws IOException {
+                return mapper.writeValueAsBytes(value);
+            }
+
+            @Override
+            public T read(byte[] json) throws IOException {
+                return mapper.readValue(json, type);
+            }
+        };
+    }
+
+    private static <T> JsonCodec<T> prebuilt(ObjectMapper mapper, JavaType type) {
+        ObjectWriter writer = mapper.writerFor(type);
+        ObjectReader reader = mapper.readerFor(type);
+        return new JsonCodec<T>() {
+            @Override
+            public byte[] write(T value) throws IOException {
+                return writer.writeValueAsBytes(value);
+            }
+
+            @Override
+            public T read(byte[] json) throws IOException {
+                return reader.readValue(json);
+            }
+        };
+    }
+}
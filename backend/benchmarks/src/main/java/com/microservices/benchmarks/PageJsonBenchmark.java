@@ -0,0 +1,75 @@
+package com.microservices.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.microservices.commonexam.models.entity.Exam;
+import com.microservices.commonstudent.models.entity.Student;
+
+/**
+ * The {@code Page} returned by every {@code /page/{page}/{size}} endpoint, including the
+ * {@code pageable}/{@code sort} metadata. Serialization only: no service reads pages back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageJsonBenchmark {
+
+    private static final int QUESTIONS_PER_EXAM = 10;
+
+    private static final int IMAGE_BYTES = 65536;
+
+    @Param({"20", "100", "500"})
+    private int size;
+
+    @Param({JsonCodecs.DEFAULT, JsonCodecs.WRITER, JsonCodecs.AFTERBURNER, JsonCodecs.BLACKBIRD})
+    private String codec;
+
+    private JsonCodec<Page<Exam>> exams;
+
+    private JsonCodec<Page<Student>> students;
+
+    private Page<Exam> examPage;
+
+    private Page<Student> studentPage;
+
+    @Setup
+    public void setUp() {
+        exams = JsonCodecs.create(codec, pageOf(Exam.class));
+        students = JsonCodecs.create(codec, pageOf(Student.class));
+        examPage = Fixtures.examPage(size, QUESTIONS_PER_EXAM);
+        studentPage = Fixtures.studentPage(size, IMAGE_BYTES);
+    }
+
+    @Benchmark
+    public byte[] examPage() throws IOException {
+        return exams.write(examPage);
+    }
+
+    @Benchmark
+    public byte[] studentPage() throws IOException {
+        return students.write(studentPage);
+    }
+
+    private static JavaType pageOf(Class<?> content) {
+        return JsonCodecs.newMapper().getTypeFactory().constructParametricType(PageImpl.class, content);
+    }
+}
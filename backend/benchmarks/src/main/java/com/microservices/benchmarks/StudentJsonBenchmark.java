@@ -0,0 +1,60 @@
+package com.microservices.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microservices.commonstudent.models.entity.Student;
+
+/**
+ * The student row only carries the image's metadata, so the cost should not depend on
+ * {@code imageBytes}; {@code imageBytes = 0} (no image) is the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentJsonBenchmark {
+
+    @Param({"0", "65536", "1048576"})
+    private int imageBytes;
+
+    @Param({JsonCodecs.DEFAULT, JsonCodecs.WRITER, JsonCodecs.AFTERBURNER, JsonCodecs.BLACKBIRD})
+    private String codec;
+
+    private JsonCodec<Student> json;
+
+    private Student student;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = JsonCodecs.create(codec, Student.class);
+        student = Fixtures.student(1L, imageBytes);
+        payload = json.write(student);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return json.write(student);
+    }
+
+    @Benchmark
+    public Student deserialize() throws IOException {
+        return json.read(payload);
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * JMH harnesses for the JSON paths shared by the services: entities as the controllers
+ * return them and the {@code Page} wrapper of the page endpoints, each through the codecs
+ * of {@link com.microservices.benchmarks.JsonCodecs}, and the request executor modes of
+ * {@code common-service} against a slow downstream.
+ * <p>
+ * Install {@code common-service}, {@code common-exam} and {@code common-student} first, then:
+ * <pre>
+ * mvn -B package
+ * java -jar target/benchmarks.jar                       # everything
+ * java -jar target/benchmarks.jar ExamJson -p codec=writer,blackbird -prof gc
+ * </pre>
+ */
+package com.microservices.benchmarks;
@@ -14,10 +14,12 @@ import javax.persistence.Id;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.constraints.NotEmpty;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -36,9 +38,14 @@ import lombok.Setter;
 public class Exam {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "exams_seq")
+    @SequenceGenerator(name = "exams_seq", sequenceName = "exams_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
     @NotEmpty
     private String name;
 
@@ -59,8 +66,12 @@ public class Exam {
     @ManyToOne(fetch = FetchType.LAZY)
     private Subject subjectChildren;
 
+    /**
+     * Whether the student asking has answered this exam; {@code null} when it could not
+     * be found out in time.
+     */
     @Transient
-    private boolean replied;
+    private Boolean replied = Boolean.FALSE;
 
     @PrePersist
     public void prePersist() {
@@ -0,0 +1,51 @@
+package com.microservices.commonservice.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Callable;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Loads entities that are handed to more than one request: in a read-only transaction
+ * of their own, fully initialized (everything the JSON view touches is fetched by
+ * serializing it once) and detached, so no request ever touches another's session.
+ */
+final class DetachedLoads {
+
+    private DetachedLoads() {
+    }
+
+    static <T> T load(TransactionTemplate readOnlyTransaction, EntityManager entityManager,
+                      ObjectMapper objectMapper, Callable<T> loader) {
+        return readOnlyTransaction.execute(status -> {
+            try {
+                T value = loader.call();
+                if (value instanceof Iterable) {
+                    ((Iterable<?>) value).forEach(entity -> initializeAndDetach(entityManager, objectMapper, entity));
+                } else if (value != null) {
+                    initializeAndDetach(entityManager, objectMapper, value);
+                }
+                return value;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void initializeAndDetach(EntityManager entityManager, ObjectMapper objectMapper, Object entity) {
+        try {
+            objectMapper.writeValue(OutputStream.nullOutputStream(), entity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        entityManager.detach(entity);
+    }
+}
@@ -0,0 +1,49 @@
+package com.microservices.commonservice.cache;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(Caffeine.class)
+@ConditionalOnProperty(prefix = "common.cache", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(EntityCacheProperties.class)
+@AutoConfigureBefore(name = "org.springframework.boot.actuate.autoconfigure.metrics.cache.CacheMetricsAutoConfiguration")
+public class EntityCacheAutoConfiguration {
+
+    public static final String ENTITY_CACHE_MANAGER = "entityCacheManager";
+
+    @Bean(ENTITY_CACHE_MANAGER)
+    public CacheManager entityCacheManager(EntityCacheProperties properties) {
+        List<CaffeineCache> caches = properties.getEntities().entrySet().stream()
+                .map(entry -> new CaffeineCache(entry.getKey(), Caffeine.newBuilder()
+                        .maximumSize(entry.getValue().getMaximumSize())
+                        .expireAfterWrite(entry.getValue().getTtl())
+                        .recordStats()
+                        .build()))
+                .collect(Collectors.toList());
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+
+    @Bean
+    public EntityCaches entityCaches(@Qualifier(ENTITY_CACHE_MANAGER) CacheManager entityCacheManager,
+                                     PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        return new EntityCaches(entityCacheManager, transactionManager, objectMapper);
+    }
+}
@@ -0,0 +1,39 @@
+package com.microservices.commonservice.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Read-through entity cache settings, e.g.
+ * <pre>
+ * common.cache.enabled=true
+ * common.cache.entities.exam.maximum-size=5000
+ * common.cache.entities.exam.ttl=10m
+ * </pre>
+ * Only the entities listed under {@code entities} are cached; the key is the
+ * uncapitalized entity class name.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "common.cache")
+public class EntityCacheProperties {
+
+    private boolean enabled;
+
+    private Map<String, Spec> entities = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Spec {
+
+        private long maximumSize = 10_000;
+
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+}
@@ -0,0 +1,98 @@
+package com.microservices.commonservice.cache;
+
+import java.util.concurrent.Callable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Read-through access to the per-entity caches of {@code entityCacheManager}.
+ * <p>
+ * Cached entities are shared between requests, so they are loaded as
+ * {@link DetachedLoads} describes before they are stored. Caffeine computes a key once,
+ * so concurrent misses for the same entity already share one load.
+ */
+public class EntityCaches {
+
+    private final CacheManager cacheManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public EntityCaches(CacheManager cacheManager, PlatformTransactionManager transactionManager,
+                        ObjectMapper objectMapper) {
+        this.cacheManager = cacheManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Cache for the given entity type, {@code null} when it is not configured.
+     */
+    public Cache getCache(Class<?> entityType) {
+        return cacheManager.getCache(StringUtils.uncapitalize(entityType.getSimpleName()));
+    }
+
+    public <T> T get(Cache cache, Object key, Callable<T> loader) {
+        try {
+            return cache.get(key, () -> DetachedLoads.load(readOnlyTransaction, entityManager, objectMapper, loader));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Evicts now and, when called inside a transaction, once more after it completes so
+     * a concurrent reader cannot re-populate the entry with the pre-commit state.
+     */
+    public void evict(Cache cache, Object key) {
+        cache.evict(key);
+        afterCompletion(() -> cache.evict(key));
+    }
+
+    /**
+     * Same as {@link #evict(Cache, Object)} for every entry of the cache.
+     */
+    public void clear(Cache cache) {
+        cache.clear();
+        afterCompletion(cache::clear);
+    }
+
+    /**
+     * Entities handed out inside a read-write transaction are about to be modified and
+     * must be the managed instances, never the shared cached copy.
+     */
+    public static boolean isReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+}
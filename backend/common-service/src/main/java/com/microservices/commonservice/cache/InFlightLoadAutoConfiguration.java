@@ -0,0 +1,27 @@
+package com.microservices.commonservice.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Request coalescing, turned on with {@code common.coalescing.enabled=true}: concurrent
+ * {@code findById} calls for an entity that is not cached share one load, and services
+ * can coalesce their own reads through {@code CommonServiceImpl#coalesce}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "common.coalescing", name = "enabled", havingValue = "true")
+public class InFlightLoadAutoConfiguration {
+
+    @Bean
+    public InFlightLoads inFlightLoads(PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        return new InFlightLoads(transactionManager, objectMapper, meterRegistry);
+    }
+}
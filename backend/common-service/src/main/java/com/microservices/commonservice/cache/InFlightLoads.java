@@ -0,0 +1,147 @@
+package com.microservices.commonservice.cache;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Single-flight loads: while a load is running, callers asking for the same name and
+ * key wait for it and get its result, or its exception, instead of starting their own.
+ * Nothing is kept once it completes; that is what {@link EntityCaches} is for.
+ * <p>
+ * Waiters share the instance the load returned, so entities go through
+ * {@link #loadDetached(Class, Object, Callable)}.
+ * <p>
+ * Metrics: {@value #LOADS}, tagged with the {@code name} of the load and {@code result}
+ * {@code leader} (ran it) or {@code joined} (waited for one already running). The
+ * collapse ratio is {@code joined / (leader + joined)}.
+ */
+public class InFlightLoads {
+
+    public static final String LOADS = "common.coalescing.loads";
+
+    private final Map<Key, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public InFlightLoads(PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                         ObjectProvider<MeterRegistry> meterRegistry) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code loader} on the calling thread unless a load of the same name and key is
+     * already running, in which case that one is awaited. Keys are compared with
+     * {@code equals}, so a list of ids is a valid key.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String name, Object key, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = loads.putIfAbsent(new Key(name, key), mine);
+        if (running != null) {
+            count(name, "joined");
+            return (T) await(running);
+        }
+        count(name, "leader");
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(new Key(name, key), mine);
+        }
+    }
+
+    /**
+     * Same as {@link #load(String, Object, Supplier)} for an entity, named after its
+     * type like the entity caches, and loaded as {@link DetachedLoads} describes.
+     */
+    public <T> T loadDetached(Class<?> entityType, Object id, Callable<T> loader) {
+        return load(StringUtils.uncapitalize(entityType.getSimpleName()), id,
+                () -> DetachedLoads.load(readOnlyTransaction, entityManager, objectMapper, loader));
+    }
+
+    private static Object await(CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void count(String name, String result) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Counter.builder(LOADS)
+                    .description("Loads started (leader) or shared with a load already running (joined)")
+                    .tag("name", name)
+                    .tag("result", result)
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    private static final class Key {
+
+        private final String name;
+
+        private final Object key;
+
+        private Key(String name, Object key) {
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return name.equals(other.name) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + key.hashCode();
+        }
+    }
+}
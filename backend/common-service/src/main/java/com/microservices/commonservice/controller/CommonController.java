@@ -1,46 +1,106 @@
 package com.microservices.commonservice.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import javax.validation.Validator;
 import javax.validation.constraints.Min;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.commonservice.exceptions.InvalidBatchException;
+import com.microservices.commonservice.pagination.CursorPage;
+import com.microservices.commonservice.pagination.Cursors;
 import com.microservices.commonservice.service.CommonService;
+import com.microservices.commonservice.util.ETags;
 
 @CrossOrigin(origins = "http://localhost:4200")
 @RestController
 public class CommonController<E, S extends CommonService<E>> {
 
+    public static final String APPLICATION_MERGE_PATCH_JSON = "application/merge-patch+json";
+
     @Autowired
     protected S service;
 
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    @Autowired
+    protected Validator validator;
+
     @GetMapping
-    public ResponseEntity<?> getAll() {
-        return ResponseEntity.ok().body(service.findAll());
+    public ResponseEntity<?> getAll(WebRequest webRequest) {
+        if (isConditional(webRequest) && webRequest.checkNotModified(ETags.of(service.findVersionSummary()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        List<E> entities = new ArrayList<>();
+        service.findAll().forEach(entity -> entities.add(toResponse(entity)));
+        return ok(ETags.forEntities(entities)).body(entities);
     }
 
+    /**
+     * {@code ?fields=id,name} selects only those columns and returns plain objects with
+     * just those keys.
+     */
+    @GetMapping(params = "fields")
+    public ResponseEntity<?> getAllFields(@RequestParam List<String> fields) {
+        return ResponseEntity.ok().body(service.findAllFields(fields));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        StreamingResponseBody body = out -> service.streamAll(entity -> writeLine(out, toResponse(entity)));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * A request carrying {@code If-None-Match} is first checked against the version
+     * column alone; the entity is only loaded when it has changed.
+     */
     @GetMapping("/{id}")
     public @ResponseBody
-    ResponseEntity<?> show(@PathVariable Long id) {
-        return ResponseEntity.ok().body(service.findById(id));
+    ResponseEntity<?> show(@PathVariable Long id, WebRequest webRequest) {
+        if (isConditional(webRequest)) {
+            Optional<Long> version = service.findVersionById(id);
+            if (version.isPresent() && webRequest.checkNotModified(ETags.of(id, version.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+        }
+        E entity = service.findById(id);
+        return ok(ETags.forEntity(entity)).body(entity);
     }
 
     @GetMapping("/page/{page}/{size}")
@@ -49,6 +109,24 @@ public class CommonController<E, S extends CommonService<E>> {
         return service.findAllPage(pageable);
     }
 
+    @GetMapping(value = "/page/{page}/{size}", params = "fields")
+    public Page<Map<String, Object>> indexFields(@PathVariable Integer page, @PathVariable Integer size,
+                                                 @RequestParam List<String> fields) {
+        Pageable pageable = PageRequest.of(page, size);
+        return service.findAllFieldsPage(fields, pageable);
+    }
+
+    @GetMapping("/page/slice/{page}/{size}")
+    public Slice<E> slice(@PathVariable Integer page, @PathVariable Integer size) {
+        Pageable pageable = PageRequest.of(page, size);
+        return service.findAllSlice(pageable);
+    }
+
+    @GetMapping("/page/after/{cursor}/{size}")
+    public CursorPage<E> after(@PathVariable String cursor, @PathVariable Integer size) {
+        return service.findAllAfter(Cursors.decode(cursor), size);
+    }
+
     @DeleteMapping("/{id:[0-9]+}")
     public void delete(@PathVariable @Min(1) Long id) {
         service.deleteById(id);
@@ -67,6 +145,103 @@ public class CommonController<E, S extends CommonService<E>> {
         return ResponseEntity.status(HttpStatus.CREATED).body(service.update(entity));
     }
 
+    /**
+     * JSON Merge Patch: only the fields in the body are written, {@code null} clears one.
+     * The version the client started from comes from {@code If-Match} (the ETag of
+     * {@link #show}) or a {@code version} field. If it is stale the response is 412 or 409
+     * respectively, if it is missing 428. On success the response is 204 with the new ETag.
+     */
+    @PatchMapping(value = "/{id:[0-9]+}", consumes = {APPLICATION_MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patch(@PathVariable Long id, @RequestBody Map<String, Object> patch,
+                                   WebRequest webRequest) {
+        return MergePatches.apply(id, webRequest, this::expectedVersion,
+                expectedVersion -> service.patch(id, expectedVersion, patch));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> saveBatch(@RequestBody List<E> entities) {
+        Map<String, Object> errors = validateBatch(entities);
+        if (!errors.isEmpty()) {
+            return ResponseEntity.badRequest().body(errors);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.saveAll(entities));
+    }
+
+    /**
+     * Every element must already exist: one without an id, or with an id that matches
+     * nothing, is a 400 naming it, as is an invalid one, and nothing is written.
+     */
+    @PutMapping("/batch")
+    public ResponseEntity<?> updateBatch(@RequestBody List<E> entities) {
+        Map<String, Object> errors = validateBatch(entities);
+        if (!errors.isEmpty()) {
+            return ResponseEntity.badRequest().body(errors);
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(service.updateAll(entities));
+        } catch (InvalidBatchException e) {
+            return ResponseEntity.badRequest().body(e.getErrors());
+        }
+    }
+
+    @DeleteMapping("/batch")
+    public void deleteBatch(@RequestBody List<Long> ids) {
+        service.deleteAllById(ids);
+    }
+
+    /**
+     * The version an {@code If-Match} header on {@link #patch} expects, {@code null} when
+     * it is not a strong tag {@link #show} produces for that entity. Controllers whose
+     * tag covers more than the entity override it.
+     */
+    protected Long expectedVersion(Long id, String ifMatch) {
+        return ETags.versionOf(id, ifMatch);
+    }
+
+    /**
+     * Hook for controllers that decorate entities before they are written out.
+     */
+    protected E toResponse(E entity) {
+        return entity;
+    }
+
+    protected boolean isConditional(WebRequest webRequest) {
+        return webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+    }
+
+    protected ResponseEntity.BodyBuilder ok(String eTag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        return eTag != null ? builder.eTag(eTag) : builder;
+    }
+
+    protected void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Same messages as {@link #validate(BindingResult)}, keyed by {@code [index].field}
+     * so the client can tell which element of the batch was rejected.
+     */
+    protected Map<String, Object> validateBatch(List<E> entities) {
+        Map<String, Object> errors = new HashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            for (ConstraintViolation<E> violation : validator.validate(entities.get(i))) {
+                String field = violation.getPropertyPath().toString();
+                errors.put("[" + i + "]." + field, " El campo " + field + " " + violation.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    protected Map<String, Object> validate(ConstraintViolationException exception) {
+        return MergePatches.errors(exception);
+    }
+
     protected ResponseEntity<?> validate(BindingResult bindingResult) {
         Map<String, Object> errors = new HashMap<>();
         bindingResult.getFieldErrors().forEach(error -> {
@@ -0,0 +1,73 @@
+package com.microservices.commonservice.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import javax.validation.ConstraintViolationException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import com.microservices.commonservice.exceptions.VersionConflictException;
+import com.microservices.commonservice.util.ETags;
+
+/**
+ * The JSON Merge Patch endpoint of {@link CommonController#patch}, for controllers that do
+ * not extend it, so every service answers a patch with the same statuses and the same
+ * {@code field -> message} body for invalid values.
+ */
+public final class MergePatches {
+
+    private MergePatches() {
+    }
+
+    @FunctionalInterface
+    public interface Patcher {
+
+        /**
+         * @return the new version, {@code null} when the entity is not versioned
+         */
+        Long patch(Long expectedVersion);
+    }
+
+    /**
+     * @param expectedVersion the version an {@code If-Match} header expects for the id,
+     *                        {@code null} when the tag is not one this entity produces
+     */
+    public static ResponseEntity<?> apply(Long id, WebRequest webRequest,
+                                          BiFunction<Long, String, Long> expectedVersion, Patcher patcher) {
+        String ifMatch = webRequest.getHeader(HttpHeaders.IF_MATCH);
+        Long expected = ifMatch != null ? expectedVersion.apply(id, ifMatch) : null;
+        if (ifMatch != null && expected == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        try {
+            Long version = patcher.patch(expected);
+            ResponseEntity.HeadersBuilder<?> builder = ResponseEntity.noContent();
+            return version != null ? builder.eTag(ETags.of(id, version)).build() : builder.build();
+        } catch (ConstraintViolationException e) {
+            return ResponseEntity.badRequest().body(errors(e));
+        } catch (VersionConflictException e) {
+            if (ifMatch != null) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Same messages as {@link CommonController#validate(org.springframework.validation.BindingResult)},
+     * keyed by field.
+     */
+    public static Map<String, Object> errors(ConstraintViolationException exception) {
+        Map<String, Object> errors = new HashMap<>();
+        exception.getConstraintViolations().forEach(violation -> {
+            String field = violation.getPropertyPath().toString();
+            errors.put(field, " El campo " + field + " " + violation.getMessage());
+        });
+        return errors;
+    }
+}
@@ -0,0 +1,29 @@
+package com.microservices.commonservice.exceptions;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.microservices.commonservice.util.ValidationMessages;
+
+/**
+ * Elements of a batch that cannot be written, keyed by {@code [index].field} like the
+ * validation errors of a batch.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidBatchException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Object> errors;
+
+    public InvalidBatchException(Map<String, Object> errors) {
+        super(ValidationMessages.INVALID_FIELDS + errors.keySet());
+        this.errors = errors;
+    }
+
+    public Map<String, Object> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,16 @@
+package com.microservices.commonservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.microservices.commonservice.util.ValidationMessages;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFieldsException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidFieldsException(Object fields) {
+        super(ValidationMessages.INVALID_FIELDS + fields);
+    }
+}
@@ -0,0 +1,16 @@
+package com.microservices.commonservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.microservices.commonservice.util.ValidationMessages;
+
+@ResponseStatus(HttpStatus.PRECONDITION_REQUIRED)
+public class PreconditionRequiredException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PreconditionRequiredException() {
+        super(ValidationMessages.VERSION_REQUIRED);
+    }
+}
@@ -0,0 +1,16 @@
+package com.microservices.commonservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.microservices.commonservice.util.ValidationMessages;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class VersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public VersionConflictException(Long id, Long version) {
+        super(ValidationMessages.VERSION_CONFLICT + id + "-" + version);
+    }
+}
@@ -0,0 +1,70 @@
+package com.microservices.commonservice.executor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Executors for work that spends most of its time blocked on JDBC or HTTP.
+ * <p>
+ * The code base targets Java 17, so virtual threads are reached through reflection and
+ * only when the running JVM has them. Note that a virtual thread blocked inside a
+ * {@code synchronized} block (as MySQL Connector/J does) still pins its carrier on
+ * Java 21-23.
+ */
+public final class BlockingExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingExecutors.class);
+
+    private BlockingExecutors() {
+    }
+
+    public static ExecutorService create(ExecutorProperties properties, String threadNamePrefix) {
+        if (properties.getMode() == ExecutorProperties.Mode.VIRTUAL) {
+            if (isVirtualThreadSupported()) {
+                return virtual(threadNamePrefix);
+            }
+            log.info("Virtual threads need Java 21+ (running {}), using a bounded elastic pool for {}",
+                    Runtime.version(), threadNamePrefix);
+        }
+        return elastic(properties.getElastic(), threadNamePrefix);
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * Threads are only created when no idle one is left and all of them time out, so the
+     * pool is empty when idle and never exceeds {@code maxThreads}.
+     */
+    public static ThreadPoolExecutor elastic(ExecutorProperties.Elastic elastic, String threadNamePrefix) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(elastic.getMaxThreads(), elastic.getMaxThreads(),
+                elastic.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(elastic.getQueueCapacity()),
+                new CustomizableThreadFactory(threadNamePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static ExecutorService virtual(String threadNamePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available on " + Runtime.version(), e);
+        }
+    }
+}
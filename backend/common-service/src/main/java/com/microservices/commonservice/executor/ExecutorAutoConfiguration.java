@@ -0,0 +1,65 @@
+package com.microservices.commonservice.executor;
+
+import java.util.concurrent.ExecutorService;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Replaces Tomcat's request pool and the application task executor (used by
+ * {@code @Async} and by MVC for {@code StreamingResponseBody} and other async results)
+ * according to {@code common.executor.mode}. Feign calls are synchronous, so they run on
+ * whichever thread serves the request.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnExpression("!'${common.executor.mode:platform}'.equalsIgnoreCase('platform')")
+@EnableConfigurationProperties(ExecutorProperties.class)
+@AutoConfigureBefore(TaskExecutionAutoConfiguration.class)
+public class ExecutorAutoConfiguration {
+
+    public static final String REQUEST_EXECUTOR = "commonRequestExecutor";
+
+    private static final String TASK_EXECUTOR = "commonTaskExecutor";
+
+    @Bean(name = REQUEST_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService commonRequestExecutor(ExecutorProperties properties) {
+        return BlockingExecutors.create(properties, "http-request-");
+    }
+
+    @Bean(name = TASK_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService commonTaskExecutor(ExecutorProperties properties) {
+        return BlockingExecutors.create(properties, "task-");
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(@Qualifier(TASK_EXECUTOR) ExecutorService commonTaskExecutor) {
+        return new TaskExecutorAdapter(commonTaskExecutor);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+    static class TomcatExecutorConfiguration {
+
+        /**
+         * Tomcat does not shut down an executor it did not create; the bean's destroy
+         * method does, after the server has stopped.
+         */
+        @Bean
+        public TomcatProtocolHandlerCustomizer<ProtocolHandler> commonRequestExecutorCustomizer(
+                @Qualifier(REQUEST_EXECUTOR) ExecutorService commonRequestExecutor) {
+            return protocolHandler -> protocolHandler.setExecutor(commonRequestExecutor);
+        }
+    }
+}
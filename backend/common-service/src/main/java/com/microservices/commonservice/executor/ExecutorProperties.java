@@ -0,0 +1,48 @@
+package com.microservices.commonservice.executor;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Threads that serve requests and {@code @Async}/MVC async work, e.g.
+ * <pre>
+ * common.executor.mode=virtual
+ * common.executor.elastic.max-threads=400
+ * </pre>
+ * <ul>
+ * <li>{@code platform}: Tomcat's own pool, {@code server.tomcat.threads.*} apply (default);</li>
+ * <li>{@code elastic}: a bounded pool that grows on demand and lets idle threads die;</li>
+ * <li>{@code virtual}: one virtual thread per task on Java 21+, {@code elastic} otherwise.</li>
+ * </ul>
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "common.executor")
+public class ExecutorProperties {
+
+    public enum Mode {
+        PLATFORM, ELASTIC, VIRTUAL
+    }
+
+    private Mode mode = Mode.PLATFORM;
+
+    private final Elastic elastic = new Elastic();
+
+    @Getter
+    @Setter
+    public static class Elastic {
+
+        private int maxThreads = 400;
+
+        /**
+         * Tasks waiting for a thread once all of them are busy; beyond that they are rejected.
+         */
+        private int queueCapacity = 1_000;
+
+        private Duration keepAlive = Duration.ofSeconds(60);
+    }
+}
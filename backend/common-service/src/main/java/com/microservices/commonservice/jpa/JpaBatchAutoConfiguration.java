@@ -0,0 +1,33 @@
+package com.microservices.commonservice.jpa;
+
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns on JDBC batching and statement ordering for Hibernate. Values already set
+ * through {@code spring.jpa.properties.*} win.
+ * <p>
+ * {@code pooled-lo} makes the value stored in a sequence (or sequence table) the first id
+ * of the next block, so a table seeded with {@code max(id) + 1} is safe to use.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(Session.class)
+@EnableConfigurationProperties(JpaBatchProperties.class)
+public class JpaBatchAutoConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer jpaBatchHibernatePropertiesCustomizer(JpaBatchProperties properties) {
+        return hibernateProperties -> {
+            hibernateProperties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, properties.getBatchSize());
+            hibernateProperties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            hibernateProperties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+            hibernateProperties.putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, true);
+            hibernateProperties.putIfAbsent(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo");
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.microservices.commonservice.jpa;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * JDBC batching settings shared by every service, e.g.
+ * <pre>
+ * common.jpa.batch-size=50
+ * </pre>
+ * The batch size is also the flush interval of the {@code /batch} endpoints. Keep it in
+ * line with the {@code allocationSize} of the entity sequences so one batch of inserts
+ * needs at most one trip to the sequence.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "common.jpa")
+public class JpaBatchProperties {
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+}
@@ -0,0 +1,67 @@
+package com.microservices.commonservice.metrics;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+
+import com.microservices.commonservice.service.CommonService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+/**
+ * Shared metrics for every service that has actuator on the classpath. It adds:
+ * <ul>
+ * <li>{@value CommonServiceMetricsInterceptor#METRIC_NAME} timers with percentile histograms around
+ * {@link CommonService} beans;</li>
+ * <li>a cap on the {@code uri} tag of Feign client meters, the counterpart of
+ * {@code management.metrics.web.server.max-uri-tags} for HTTP server meters.</li>
+ * </ul>
+ * Feign client timers, Hikari and Mongo pool gauges and the Prometheus endpoint come from
+ * Spring Boot and Spring Cloud once {@code feign-micrometer} and
+ * {@code micrometer-registry-prometheus} are on the classpath.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean(MeterRegistry.class)
+@ConditionalOnProperty(prefix = "common.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+public class CommonMetricsAutoConfiguration {
+
+    private static final int MAX_URI_TAGS = 100;
+
+    /**
+     * Infrastructure role so the advisor joins the transaction proxy even without AspectJ.
+     * The registry is looked up lazily; resolving it here would create it before the
+     * meter registry post-processors run.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor commonServiceMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return CommonService.class.isAssignableFrom(targetClass)
+                        && Modifier.isPublic(method.getModifiers())
+                        && method.getDeclaringClass() != Object.class;
+            }
+        }, new CommonServiceMetricsInterceptor(meterRegistry));
+    }
+
+    @Bean
+    public MeterFilter feignUriTagsMeterFilter() {
+        return MeterFilter.maximumAllowableTags("feign", "uri", MAX_URI_TAGS, MeterFilter.deny());
+    }
+}
@@ -0,0 +1,69 @@
+package com.microservices.commonservice.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.util.ClassUtils;
+
+import com.microservices.commonservice.service.CommonServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every public method of a {@link com.microservices.commonservice.service.CommonService}
+ * bean as {@value #METRIC_NAME}, tagged with the entity, the method name and the exception
+ * class, all of which are bounded by the code base.
+ */
+public class CommonServiceMetricsInterceptor implements MethodInterceptor {
+
+    public static final String METRIC_NAME = "common.service";
+
+    private static final String NONE = "none";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final Map<Class<?>, String> entityNames = new ConcurrentHashMap<>();
+
+    public CommonServiceMetricsInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return invocation.proceed();
+        }
+        Timer.Sample sample = Timer.start(registry);
+        String exception = NONE;
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                    .description("CommonService method execution time")
+                    .tag("entity", entityName(invocation.getThis()))
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private String entityName(Object service) {
+        if (service == null) {
+            return NONE;
+        }
+        return entityNames.computeIfAbsent(ClassUtils.getUserClass(service), type -> {
+            Class<?>[] arguments = GenericTypeResolver.resolveTypeArguments(type, CommonServiceImpl.class);
+            return arguments != null && arguments[0] != null ? arguments[0].getSimpleName() : NONE;
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.microservices.commonservice.pagination;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One page of a keyset (seek) scan ordered by id. {@code nextCursor} is the opaque
+ * token to pass back to get the following page, {@code null} once the scan is done.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<E> {
+
+    private final List<E> content;
+
+    private final int size;
+
+    private final boolean hasNext;
+
+    private final String nextCursor;
+}
@@ -0,0 +1,50 @@
+package com.microservices.commonservice.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.microservices.commonservice.exceptions.InvalidCursorException;
+
+public final class Cursors {
+
+    private static final String PREFIX = "id:";
+
+    private Cursors() {
+    }
+
+    public static String encode(Long lastId) {
+        byte[] raw = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Accepts either a token produced by {@link #encode(Long)} or a plain numeric id,
+     * so the first page can be requested with {@code 0}.
+     */
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            throw new InvalidCursorException(cursor);
+        }
+        if (cursor.chars().allMatch(Character::isDigit)) {
+            return parse(cursor, cursor);
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+        if (!raw.startsWith(PREFIX)) {
+            throw new InvalidCursorException(cursor);
+        }
+        return parse(raw.substring(PREFIX.length()), cursor);
+    }
+
+    private static Long parse(String value, String cursor) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.microservices.commonservice.repository;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+@NoRepositoryBean
+public interface CommonRepository<E> extends PagingAndSortingRepository<E, Long> {
+
+    /**
+     * Rows fetched per round trip by {@link #streamAllBy()}. MySQL only honours it when the
+     * JDBC url sets {@code useCursorFetch=true}; PostgreSQL only inside a transaction.
+     */
+    String STREAM_FETCH_SIZE = "500";
+
+    Slice<E> findAllBy(Pageable pageable);
+
+    Slice<E> findByIdGreaterThanOrderByIdAsc(Long lastId, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    Stream<E> streamAllBy();
+
+    @Query("select e.version from #{#entityName} e where e.id = ?1")
+    Optional<Long> findVersionById(Long id);
+
+    @Query("select new com.microservices.commonservice.repository.VersionSummary(count(e), max(e.id), sum(e.version))"
+            + " from #{#entityName} e")
+    VersionSummary findVersionSummary();
+}
@@ -0,0 +1,87 @@
+package com.microservices.commonservice.repository;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.microservices.commonservice.exceptions.InvalidFieldsException;
+
+/**
+ * Bulk {@code UPDATE}s that set only the given columns of one row. A criteria update
+ * bypasses Hibernate's optimistic locking, so the {@code @Version} column is checked and
+ * incremented here. Same attribute rules as {@link FieldProjections}, attributes hidden
+ * from JSON with {@link JsonIgnore} included, except that the id and the version cannot
+ * be patched.
+ */
+public final class EntityPatches {
+
+    private static final String ID = "id";
+
+    private EntityPatches() {
+    }
+
+    /**
+     * Java type of each field, in order; unknown or non-patchable fields are rejected.
+     */
+    public static <E> Map<String, Class<?>> resolve(EntityManager entityManager, Class<E> entityType,
+                                                    Collection<String> fields) {
+        EntityType<E> entity = entityManager.getMetamodel().entity(entityType);
+        Map<String, Class<?>> types = new LinkedHashMap<>();
+        entity.getSingularAttributes().stream()
+                .filter(attribute -> fields.contains(attribute.getName()) && isPatchable(attribute))
+                .forEach(attribute -> types.put(attribute.getName(), attribute.getJavaType()));
+        List<String> invalid = fields.stream()
+                .filter(field -> !types.containsKey(field))
+                .collect(Collectors.toList());
+        if (!invalid.isEmpty()) {
+            throw new InvalidFieldsException(invalid);
+        }
+        return types;
+    }
+
+    public static <E> boolean isVersioned(EntityManager entityManager, Class<E> entityType) {
+        return entityManager.getMetamodel().entity(entityType).hasVersionAttribute();
+    }
+
+    /**
+     * Sets the values on row {@code id}. For a versioned entity the row must still be at
+     * {@code expectedVersion}, and its version is incremented.
+     *
+     * @return the number of rows updated, 0 when the row is missing or was modified
+     */
+    public static <E> int update(EntityManager entityManager, Class<E> entityType, Long id, Long expectedVersion,
+                                 Map<String, Object> values) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<E> update = builder.createCriteriaUpdate(entityType);
+        Root<E> root = update.from(entityType);
+        // by name: Hibernate binds a null value as a typed null literal
+        values.forEach(update::set);
+        Predicate where = builder.equal(root.get(ID), id);
+        EntityType<E> entity = entityManager.getMetamodel().entity(entityType);
+        if (entity.hasVersionAttribute()) {
+            Path<Long> version = root.get(entity.getVersion(Long.class).getName());
+            update.set(version, builder.sum(version, 1L));
+            where = builder.and(where, builder.equal(version, expectedVersion));
+        }
+        update.where(where);
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    private static boolean isPatchable(SingularAttribute<?, ?> attribute) {
+        return FieldProjections.isSelectable(attribute)
+                && !attribute.isId()
+                && !attribute.isVersion();
+    }
+}
@@ -0,0 +1,125 @@
+package com.microservices.commonservice.repository;
+
+import java.lang.reflect.AnnotatedElement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.microservices.commonservice.exceptions.InvalidFieldsException;
+
+/**
+ * Tuple queries that select only the requested columns of an entity. Rows come back as
+ * maps keyed by field name, in the requested order; no entity or proxy is created.
+ * <p>
+ * Only basic, non-array attributes can be selected: associations would need a join and
+ * binary columns such as {@code Student.image} are exactly what a projection avoids.
+ * Attributes hidden from JSON with {@link JsonIgnore} stay hidden here too.
+ */
+public final class FieldProjections {
+
+    private static final String ID = "id";
+
+    private FieldProjections() {
+    }
+
+    public static <E> List<Map<String, Object>> findAll(EntityManager entityManager, Class<E> entityType,
+                                                        List<String> fields) {
+        List<String> names = resolve(entityManager, entityType, fields);
+        CriteriaQuery<Tuple> query = select(entityManager, entityType, names, Pageable.unpaged());
+        return toMaps(names, entityManager.createQuery(query).getResultList());
+    }
+
+    public static <E> Page<Map<String, Object>> findAll(EntityManager entityManager, Class<E> entityType,
+                                                        List<String> fields, Pageable pageable) {
+        List<String> names = resolve(entityManager, entityType, fields);
+        CriteriaQuery<Tuple> query = select(entityManager, entityType, names, pageable);
+        List<Tuple> rows = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        return PageableExecutionUtils.getPage(toMaps(names, rows), pageable,
+                () -> count(entityManager, entityType));
+    }
+
+    private static <E> List<String> resolve(EntityManager entityManager, Class<E> entityType, List<String> fields) {
+        EntityType<E> entity = entityManager.getMetamodel().entity(entityType);
+        Set<String> names = fields.stream()
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        List<String> invalid = names.stream()
+                .filter(name -> !isSelectable(entity, name))
+                .collect(Collectors.toList());
+        if (names.isEmpty() || !invalid.isEmpty()) {
+            throw new InvalidFieldsException(names.isEmpty() ? fields : invalid);
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static boolean isSelectable(EntityType<?> entity, String name) {
+        return entity.getAttributes().stream()
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .map(FieldProjections::isSelectable)
+                .orElse(false);
+    }
+
+    static boolean isSelectable(Attribute<?, ?> attribute) {
+        return attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC
+                && !attribute.getJavaType().isArray()
+                && !(attribute.getJavaMember() instanceof AnnotatedElement
+                && ((AnnotatedElement) attribute.getJavaMember()).isAnnotationPresent(JsonIgnore.class));
+    }
+
+    private static <E> CriteriaQuery<Tuple> select(EntityManager entityManager, Class<E> entityType,
+                                                   List<String> names, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<E> root = query.from(entityType);
+        query.multiselect(names.stream().<Selection<?>>map(root::get).collect(Collectors.toList()));
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+        } else {
+            query.orderBy(builder.asc(root.get(ID)));
+        }
+        return query;
+    }
+
+    private static <E> long count(EntityManager entityManager, Class<E> entityType) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        query.select(builder.count(query.from(entityType)));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static List<Map<String, Object>> toMaps(List<String> names, List<Tuple> rows) {
+        List<Map<String, Object>> maps = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                map.put(names.get(i), row.get(i));
+            }
+            maps.add(map);
+        }
+        return maps;
+    }
+}
@@ -0,0 +1,28 @@
+package com.microservices.commonservice.repository;
+
+import lombok.Getter;
+
+/**
+ * Row count, highest id and sum of versions of a table. Ids only grow and versions are
+ * only incremented, so any insert, update or delete changes at least one of the three.
+ */
+@Getter
+public class VersionSummary {
+
+    private final long count;
+
+    private final long maxId;
+
+    private final long versionSum;
+
+    public VersionSummary(Long count, Long maxId, Long versionSum) {
+        this.count = count != null ? count : 0;
+        this.maxId = maxId != null ? maxId : 0;
+        this.versionSum = versionSum != null ? versionSum : 0;
+    }
+
+    @Override
+    public String toString() {
+        return count + "-" + maxId + "-" + versionSum;
+    }
+}
@@ -1,18 +1,51 @@
 package com.microservices.commonservice.service;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import com.microservices.commonservice.pagination.CursorPage;
+import com.microservices.commonservice.repository.VersionSummary;
 
 public interface CommonService<E> {
 
     public Iterable<E> findAll();
 
+    public void streamAll(Consumer<E> consumer);
+
     public Page<E> findAllPage(Pageable pageable);
 
+    public List<Map<String, Object>> findAllFields(List<String> fields);
+
+    public Page<Map<String, Object>> findAllFieldsPage(List<String> fields, Pageable pageable);
+
+    public Slice<E> findAllSlice(Pageable pageable);
+
+    public CursorPage<E> findAllAfter(Long lastId, int size);
+
     public E findById(Long id);
 
+    public Optional<Long> findVersionById(Long id);
+
+    public VersionSummary findVersionSummary();
+
     public E save(E entity);
 
     public E update(E entity);
 
+    public E modify(Long id, Consumer<E> changes);
+
+    public Long patch(Long id, Long expectedVersion, Map<String, Object> patch);
+
     public void deleteById(Long id);
+
+    public List<E> saveAll(List<E> entities);
+
+    public List<E> updateAll(List<E> entities);
+
+    public void deleteAllById(List<Long> ids);
 }
@@ -1,24 +1,106 @@
 package com.microservices.commonservice.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.core.GenericTypeResolver;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.commonservice.cache.EntityCaches;
+import com.microservices.commonservice.cache.InFlightLoads;
+import com.microservices.commonservice.exceptions.InvalidBatchException;
+import com.microservices.commonservice.exceptions.InvalidFieldsException;
+import com.microservices.commonservice.exceptions.PreconditionRequiredException;
 import com.microservices.commonservice.exceptions.ResourceNotFoundException;
+import com.microservices.commonservice.exceptions.VersionConflictException;
+import com.microservices.commonservice.jpa.JpaBatchProperties;
+import com.microservices.commonservice.pagination.CursorPage;
+import com.microservices.commonservice.pagination.Cursors;
+import com.microservices.commonservice.repository.CommonRepository;
+import com.microservices.commonservice.repository.EntityPatches;
+import com.microservices.commonservice.repository.FieldProjections;
+import com.microservices.commonservice.repository.VersionSummary;
 import com.microservices.commonservice.util.ValidationMessages;
 
-public class CommonServiceImpl<E, R extends PagingAndSortingRepository<E, Long>> implements CommonService<E> {
+public class CommonServiceImpl<E, R extends CommonRepository<E>> implements CommonService<E> {
 
     @Autowired
     protected R repository;
 
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    @Autowired(required = false)
+    private EntityCaches entityCaches;
+
+    @Autowired(required = false)
+    private InFlightLoads inFlightLoads;
+
+    @Autowired(required = false)
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private Validator validator;
+
+    @Value("${common.jpa.batch-size:" + JpaBatchProperties.DEFAULT_BATCH_SIZE + "}")
+    private int batchSize = JpaBatchProperties.DEFAULT_BATCH_SIZE;
+
+    private static final String ALL_KEY = "*";
+
+    private static final String ID = "id";
+
+    private static final String VERSION = "version";
+
     @Override
     @Transactional(readOnly = true)
     public Iterable<E> findAll() {
-        return repository.findAll();
+        Cache cache = entityCache();
+        if (cache == null) {
+            return loadAll();
+        }
+        return entityCaches.get(cache, ALL_KEY, () -> {
+            List<E> entities = new ArrayList<>();
+            loadAll().forEach(entities::add);
+            return entities;
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<E> consumer) {
+        try (Stream<E> entities = repository.streamAllBy()) {
+            entities.forEach(entity -> {
+                consumer.accept(entity);
+                entityManager.detach(entity);
+            });
+        }
     }
 
     @Override
@@ -26,8 +108,86 @@ public class CommonServiceImpl<E, R extends PagingAndSortingRepository<E, Long>>
         return repository.findAll(pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAllFields(List<String> fields) {
+        return FieldProjections.findAll(entityManager, getEntityType(), fields);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAllFieldsPage(List<String> fields, Pageable pageable) {
+        return FieldProjections.findAll(entityManager, getEntityType(), fields, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<E> findAllSlice(Pageable pageable) {
+        return repository.findAllBy(pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<E> findAllAfter(Long lastId, int size) {
+        Slice<E> slice = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, size));
+        List<E> content = slice.getContent();
+        String nextCursor = slice.hasNext() && !content.isEmpty()
+                ? Cursors.encode(getId(content.get(content.size() - 1)))
+                : null;
+        return new CursorPage<>(content, size, slice.hasNext(), nextCursor);
+    }
+
+    /**
+     * Concurrent misses of the entity cache already share one load. Entities that are not
+     * cached are coalesced instead, when that is on; neither applies to a caller about to
+     * modify what it reads.
+     */
     @Override
     public E findById(Long id) {
+        Cache cache = entityCache();
+        if (cache != null) {
+            return entityCaches.get(cache, id, () -> loadById(id));
+        }
+        if (inFlightLoads == null || EntityCaches.isReadWriteTransaction()) {
+            return loadById(id);
+        }
+        return inFlightLoads.loadDetached(getEntityType(), id, () -> loadById(id));
+    }
+
+    /**
+     * Not cached: this is what a conditional GET is checked against, so it must come from
+     * the database.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> findVersionById(Long id) {
+        return repository.findVersionById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public VersionSummary findVersionSummary() {
+        return repository.findVersionSummary();
+    }
+
+    /**
+     * What {@link #findAll()} reads, and caches when caching is on. Services whose
+     * responses walk a lazy association override it to fetch that association up front.
+     */
+    protected Iterable<E> loadAll() {
+        return repository.findAll();
+    }
+
+    /**
+     * Runs {@code loader} once for concurrent callers passing the same name and key when
+     * coalescing is on, for reads that do not go through {@link #findById(Long)}. The
+     * result is shared between them as it is.
+     */
+    protected <T> T coalesce(String name, Object key, Supplier<T> loader) {
+        return inFlightLoads != null ? inFlightLoads.load(name, key, loader) : loader.get();
+    }
+
+    protected E loadById(Long id) {
         return repository.findById(id)
                 .orElseThrow(
                         () -> new ResourceNotFoundException(ValidationMessages.RESOURCE_NO_FOUND)
@@ -37,17 +197,288 @@ public class CommonServiceImpl<E, R extends PagingAndSortingRepository<E, Long>>
     @Override
     @Transactional()
     public E save(E student) {
-        return repository.save(student);
+        evict(getId(student));
+        E saved = repository.save(student);
+        evict(getId(saved));
+        return saved;
     }
 
     @Override
     public E update(E student) {
-        return repository.save(student);
+        evict(getId(student));
+        fillMissingVersion(student, () -> repository.findVersionById(getId(student)).orElse(null));
+        E updated = repository.save(student);
+        evict(getId(updated));
+        return updated;
+    }
+
+    /**
+     * For read-modify-write endpoints. {@link #findById(Long)} may hand out an instance
+     * shared with other requests, which must never be changed; this loads the managed
+     * entity instead and applies {@code changes} and the save in one transaction, so an
+     * edit that fails leaves nothing behind.
+     */
+    @Override
+    @Transactional()
+    public E modify(Long id, Consumer<E> changes) {
+        E entity = loadById(id);
+        if (entity == null) {
+            throw new ResourceNotFoundException(ValidationMessages.RESOURCE_NO_FOUND);
+        }
+        changes.accept(entity);
+        E saved = repository.save(entity);
+        evict(id);
+        return saved;
+    }
+
+    /**
+     * Applies a JSON Merge Patch as one {@code UPDATE} of the fields present in it: no
+     * SELECT, no rewrite of the other columns. Values are converted and validated per
+     * field. A versioned entity must say which version the patch was made against,
+     * either as {@code expectedVersion} or as a {@code version} field.
+     *
+     * @return the new version, {@code null} when the entity is not versioned
+     */
+    @Override
+    @Transactional()
+    public Long patch(Long id, Long expectedVersion, Map<String, Object> patch) {
+        Map<String, Object> changes = new LinkedHashMap<>(patch);
+        changes.remove(ID);
+        Object bodyVersion = changes.remove(VERSION);
+        Long version = expectedVersion != null ? expectedVersion : toVersion(bodyVersion);
+        boolean versioned = EntityPatches.isVersioned(entityManager, getEntityType());
+        if (versioned && version == null) {
+            throw new PreconditionRequiredException();
+        }
+        Map<String, Object> values = convert(changes);
+        if (values.isEmpty()) {
+            return versioned ? checkVersion(id, version) : null;
+        }
+        evict(id);
+        int updated = EntityPatches.update(entityManager, getEntityType(), id, version, values);
+        if (updated == 0) {
+            if (!repository.existsById(id)) {
+                throw new ResourceNotFoundException(ValidationMessages.RESOURCE_NO_FOUND);
+            }
+            throw new VersionConflictException(id, version);
+        }
+        evict(id);
+        return versioned ? version + 1 : null;
+    }
+
+    private Long checkVersion(Long id, Long version) {
+        Long current = repository.findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(ValidationMessages.RESOURCE_NO_FOUND));
+        if (!current.equals(version)) {
+            throw new VersionConflictException(id, version);
+        }
+        return current;
+    }
+
+    private Long toVersion(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            throw new InvalidFieldsException(List.of(VERSION));
+        }
+    }
+
+    /**
+     * JSON values to the attribute types, through the application's {@link ObjectMapper}
+     * so dates and enums parse as they do in a request body.
+     */
+    private Map<String, Object> convert(Map<String, Object> changes) {
+        Map<String, Class<?>> types = EntityPatches.resolve(entityManager, getEntityType(), changes.keySet());
+        ObjectMapper mapper = objectMapper != null ? objectMapper : new ObjectMapper();
+        Map<String, Object> values = new LinkedHashMap<>();
+        Set<ConstraintViolation<E>> violations = new LinkedHashSet<>();
+        types.forEach((name, type) -> {
+            Object value;
+            try {
+                value = mapper.convertValue(changes.get(name), type);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidFieldsException(List.of(name));
+            }
+            if (validator != null) {
+                violations.addAll(validator.validateValue(getEntityType(), name, value));
+            }
+            values.put(name, value);
+        });
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return values;
     }
 
     @Override
     @Transactional()
     public void deleteById(Long id) {
+        evict(id);
         repository.deleteById(id);
     }
+
+    /**
+     * Inserts in chunks of {@code common.jpa.batch-size}: each chunk is flushed as one JDBC
+     * batch and then cleared, so the persistence context stays small however many rows
+     * come in.
+     */
+    @Override
+    @Transactional()
+    public List<E> saveAll(List<E> entities) {
+        List<E> saved = new ArrayList<>(entities.size());
+        for (List<E> batch : batches(entities)) {
+            batch.forEach(entity -> saved.add(repository.save(entity)));
+            flushAndClear();
+        }
+        evictAll();
+        return saved;
+    }
+
+    /**
+     * Loads each chunk with a single {@code IN} query first, so merging the incoming
+     * copies does not select them one by one, then flushes the updates as one batch.
+     * Elements without an id, or whose id does not exist, would be inserted by the
+     * merge; they fail the whole batch with an {@link InvalidBatchException} naming each
+     * of them, and nothing is written.
+     */
+    @Override
+    @Transactional()
+    public List<E> updateAll(List<E> entities) {
+        List<E> updated = new ArrayList<>(entities.size());
+        Map<String, Object> errors = new HashMap<>();
+        int offset = 0;
+        for (List<E> batch : batches(entities)) {
+            Map<Long, E> current = new HashMap<>();
+            repository.findAllById(batch.stream()
+                    .map(this::getId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()))
+                    .forEach(entity -> current.put(getId(entity), entity));
+            for (int i = 0; i < batch.size(); i++) {
+                Long id = getId(batch.get(i));
+                if (id == null) {
+                    errors.put("[" + (offset + i) + "].id", " El campo id " + ValidationMessages.ID_REQUIRED);
+                } else if (!current.containsKey(id)) {
+                    errors.put("[" + (offset + i) + "].id", " El campo id " + ValidationMessages.ID_NOT_FOUND + id);
+                }
+            }
+            offset += batch.size();
+            if (!errors.isEmpty()) {
+                continue;
+            }
+            batch.forEach(entity -> {
+                fillMissingVersion(entity, () -> getVersion(current.get(getId(entity))));
+                updated.add(merged(repository.save(entity)));
+            });
+            flushAndClear();
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidBatchException(errors);
+        }
+        evictAll();
+        return updated;
+    }
+
+    /**
+     * Ids that do not exist are ignored. Entities are loaded before being removed so
+     * cascades and orphan removal still apply.
+     */
+    @Override
+    @Transactional()
+    public void deleteAllById(List<Long> ids) {
+        for (List<Long> batch : batches(ids)) {
+            repository.deleteAll(repository.findAllById(batch));
+            flushAndClear();
+        }
+        evictAll();
+    }
+
+    private <T> List<List<T>> batches(List<T> items) {
+        int size = batchSize > 0 ? batchSize : JpaBatchProperties.DEFAULT_BATCH_SIZE;
+        List<List<T>> batches = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += size) {
+            batches.add(items.subList(from, Math.min(from + size, items.size())));
+        }
+        return batches;
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Called by {@link #updateAll(List)} with each managed entity right after its merge,
+     * before the chunk is flushed; services whose representation spans other rows can
+     * flush and bump the version here.
+     */
+    protected E merged(E entity) {
+        return entity;
+    }
+
+    /**
+     * Drops the cached entity (and the cached list) so the next read sees the write.
+     * A {@code null} id only invalidates the list.
+     */
+    protected void evict(Long id) {
+        Cache cache = entityCaches != null ? entityCaches.getCache(getEntityType()) : null;
+        if (cache == null) {
+            return;
+        }
+        if (id != null) {
+            entityCaches.evict(cache, id);
+        }
+        entityCaches.evict(cache, ALL_KEY);
+    }
+
+    /**
+     * For bulk statements that touch rows whose ids are not known here.
+     */
+    protected void evictAll() {
+        Cache cache = entityCaches != null ? entityCaches.getCache(getEntityType()) : null;
+        if (cache != null) {
+            entityCaches.clear(cache);
+        }
+    }
+
+    /**
+     * The configured cache for this entity type, or {@code null} when caching is off
+     * or the caller is about to modify what it reads.
+     */
+    private Cache entityCache() {
+        if (entityCaches == null || EntityCaches.isReadWriteTransaction()) {
+            return null;
+        }
+        return entityCaches.getCache(getEntityType());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Class<E> getEntityType() {
+        return (Class<E>) GenericTypeResolver.resolveTypeArguments(getClass(), CommonServiceImpl.class)[0];
+    }
+
+    protected Long getId(E entity) {
+        return (Long) PropertyAccessorFactory.forBeanPropertyAccess(entity).getPropertyValue("id");
+    }
+
+    protected Long getVersion(E entity) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        return wrapper.isReadableProperty(VERSION) ? (Long) wrapper.getPropertyValue(VERSION) : null;
+    }
+
+    /**
+     * Clients that do not send the version back keep last-write-wins semantics. Without
+     * this, a {@code null} version would make Spring Data treat the entity as new.
+     */
+    private void fillMissingVersion(E entity, Supplier<Long> currentVersion) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        if (getId(entity) == null || !wrapper.isWritableProperty(VERSION)
+                || wrapper.getPropertyValue(VERSION) != null) {
+            return;
+        }
+        wrapper.setPropertyValue(VERSION, currentVersion.get());
+    }
 }
@@ -0,0 +1,115 @@
+package com.microservices.commonservice.util;
+
+import java.util.StringJoiner;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import com.microservices.commonservice.repository.VersionSummary;
+
+/**
+ * Strong entity tags built from {@code @Version} columns, so a conditional request can be
+ * answered from {@link com.microservices.commonservice.repository.CommonRepository#findVersionById}
+ * or {@link com.microservices.commonservice.repository.CommonRepository#findVersionSummary}
+ * without loading the entities.
+ */
+public final class ETags {
+
+    private static final String ID = "id";
+
+    private static final String VERSION = "version";
+
+    private static final int SUMMARY_PARTS = 3;
+
+    private ETags() {
+    }
+
+    /**
+     * Joins the parts, typically ids, versions and {@link VersionSummary summaries}, into
+     * one quoted tag.
+     */
+    public static String of(Object... parts) {
+        StringJoiner tag = new StringJoiner("-", "\"", "\"");
+        for (Object part : parts) {
+            tag.add(String.valueOf(part));
+        }
+        return tag.toString();
+    }
+
+    /**
+     * Same tag as {@code of(id, version)}, {@code null} when the entity is not versioned.
+     */
+    public static String forEntity(Object entity) {
+        Long version = version(entity);
+        return version != null ? of(id(entity), version) : null;
+    }
+
+    /**
+     * Same tag as {@code of(repository.findVersionSummary())} computed over entities
+     * already in memory.
+     */
+    public static String forEntities(Iterable<?> entities) {
+        return of(summarize(entities));
+    }
+
+    /**
+     * The version an {@code If-Match} header expects for entity {@code id}, {@code null}
+     * when it is not a tag produced by {@link #forEntity} for that entity. If-Match uses
+     * the strong comparison, so a weak tag never matches.
+     */
+    public static Long versionOf(Long id, String ifMatch) {
+        return versionOf(id, ifMatch, 0);
+    }
+
+    /**
+     * Same for tags built as {@code of(id, version, summary...)} with that many
+     * {@link VersionSummary summaries} of embedded data. A write to the entity's own
+     * columns is checked against its version only, so the summaries just have to be well
+     * formed.
+     */
+    public static Long versionOf(Long id, String ifMatch, int summaries) {
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return null;
+        }
+        String[] parts = tag.substring(1, tag.length() - 1).split("-", -1);
+        if (parts.length != 2 + SUMMARY_PARTS * summaries || !parts[0].equals(String.valueOf(id))) {
+            return null;
+        }
+        try {
+            for (int i = 2; i < parts.length; i++) {
+                Long.parseLong(parts[i]);
+            }
+            return Long.valueOf(parts[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static VersionSummary summarize(Iterable<?> entities) {
+        long count = 0;
+        long maxId = 0;
+        long versionSum = 0;
+        for (Object entity : entities) {
+            count++;
+            Long id = id(entity);
+            Long version = version(entity);
+            maxId = id != null ? Math.max(maxId, id) : maxId;
+            versionSum += version != null ? version : 0;
+        }
+        return new VersionSummary(count, maxId, versionSum);
+    }
+
+    private static Long id(Object entity) {
+        return (Long) property(entity, ID);
+    }
+
+    private static Long version(Object entity) {
+        return (Long) property(entity, VERSION);
+    }
+
+    private static Object property(Object entity, String name) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        return wrapper.isReadableProperty(name) ? wrapper.getPropertyValue(name) : null;
+    }
+}
@@ -3,4 +3,16 @@ package com.microservices.commonservice.util;
 public class ValidationMessages {
 
     public static final String RESOURCE_NO_FOUND = "Recurso no encontrado!";
+
+    public static final String INVALID_CURSOR = "Cursor invalido: ";
+
+    public static final String INVALID_FIELDS = "Campos invalidos: ";
+
+    public static final String VERSION_REQUIRED = "Se requiere la version (If-Match o campo version)";
+
+    public static final String VERSION_CONFLICT = "El recurso fue modificado, version esperada: ";
+
+    public static final String ID_REQUIRED = "es obligatorio para actualizar";
+
+    public static final String ID_NOT_FOUND = "no corresponde a ningun recurso: ";
 }
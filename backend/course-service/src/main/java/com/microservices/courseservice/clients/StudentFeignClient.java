@@ -1,16 +1,32 @@
 package com.microservices.courseservice.clients;
 
 
+import java.util.Collection;
+
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import com.microservices.commonstudent.models.entity.Student;
 
-@FeignClient(name = "user-service")
+/**
+ * user-service's {@code StudentController}, mapped under {@code /students}.
+ */
+@FeignClient(name = "user-service", path = "/students")
 public interface StudentFeignClient {
 
+    /**
+     * Above this many ids the lookup is sent as a POST body: each id costs about a dozen
+     * bytes of query string, and servers refuse request lines past a few KB.
+     */
+    int MAX_QUERY_STRING_IDS = 200;
+
     @GetMapping("/students-by-course")
     Iterable<Student> getStudentsByCourse(@RequestParam Iterable<Long> ids);
 
+    @PostMapping("/students-by-course")
+    Iterable<Student> findStudentsByCourse(@RequestBody Collection<Long> ids);
+
 }
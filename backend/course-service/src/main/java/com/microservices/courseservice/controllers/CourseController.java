@@ -1,9 +1,20 @@
 package com.microservices.courseservice.controllers;
 
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -18,9 +29,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.context.request.WebRequest;
 import com.microservices.commonexam.models.entity.Exam;
 import com.microservices.commonservice.controller.CommonController;
+import com.microservices.commonservice.util.ETags;
 import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.courseservice.models.EnrollmentResult;
 import com.microservices.courseservice.models.entity.Course;
 import com.microservices.courseservice.models.entity.CourseStudent;
 import com.microservices.courseservice.services.CourseService;
@@ -32,48 +46,48 @@ import javax.validation.Valid;
 @RestController
 public class CourseController extends CommonController<Course, CourseService> {
 
+    private static final Logger log = LoggerFactory.getLogger(CourseController.class);
+
     private final CourseService courseService;
 
-    public CourseController(CourseService service) {
+    private final Duration dashboardDeadline;
+
+    public CourseController(CourseService service,
+                            @Value("${courses.student-dashboard.deadline:1s}") Duration dashboardDeadline) {
         this.courseService = service;
+        this.dashboardDeadline = dashboardDeadline;
     }
 
+    /**
+     * Courses embed their exams, whose changes do not touch the course version, so the
+     * tag cannot be checked before loading; the 304 still saves the body.
+     */
     @GetMapping
     @Override
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(WebRequest webRequest) {
         List<Course> courseList = ((List<Course>) courseService.findAll())
                 .stream()
-                .map(course -> {
-                    course.getCourseStudents().forEach(courseStudent -> {
-                        Student student = new Student();
-                        student.setId(courseStudent.getStudentId());
-                        course.addStudent(student);
-                    });
-                    return course;
-                }).collect(Collectors.toList());
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+        List<Exam> exams = courseList.stream()
+                .flatMap(course -> course.getExams().stream())
+                .collect(Collectors.toList());
 
-        return ResponseEntity.ok().body(courseList);
+        return ok(ETags.of(ETags.summarize(courseList), ETags.summarize(exams))).body(courseList);
     }
 
     @GetMapping({"/page/{page}/{size}/with-students"})
     public ResponseEntity<?> getAllPageable(@PathVariable Integer page, @PathVariable Integer size) {
         Page<Course> coursesPage = this.courseService.findAllPage(PageRequest.of(page, size))
-                .map(course -> {
-                    course.getCourseStudents().forEach(courseStudent -> {
-                        Student student = new Student();
-                        student.setId(courseStudent.getStudentId());
-                        course.addStudent(student);
-                    });
-                    return course;
-                });
+                .map(this::toResponse);
 
         return ResponseEntity.ok().body(coursesPage);
     }
 
     @GetMapping({"/{id}"})
     @Override
-    public ResponseEntity<?> show(@PathVariable Long id) {
-        Course course = this.courseService.findById(id);
+    public ResponseEntity<?> show(@PathVariable Long id, WebRequest webRequest) {
+        Course course = copyOf(this.courseService.findById(id));
         if (!course.getCourseStudents().isEmpty()) {
             List<Long> ids = course.getCourseStudents()
                     .stream()
@@ -84,7 +98,18 @@ public class CourseController extends CommonController<Course, CourseService> {
             course.setStudents(students);
         }
 
-        return ResponseEntity.ok().body(course);
+        String eTag = ETags.of(course.getId(), course.getVersion(),
+                ETags.summarize(course.getExams()), ETags.summarize(course.getStudents()));
+        return ok(eTag).body(course);
+    }
+
+    /**
+     * The tag of {@link #show} also summarizes the exams and the students, which a patch
+     * of the course's own fields does not touch.
+     */
+    @Override
+    protected Long expectedVersion(Long id, String ifMatch) {
+        return ETags.versionOf(id, ifMatch, 2);
     }
 
     @GetMapping("/page/{page}/{size}")
@@ -107,72 +132,103 @@ public class CourseController extends CommonController<Course, CourseService> {
         if (bindingResult.hasErrors()) {
             return this.validate(bindingResult);
         }
-        Course courseBD = service.findById(id);
-        courseBD.setName(course.getName());
-        courseBD.setDescription(course.getDescription());
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.update(courseBD));
+        Course updated = service.modify(id, courseBD -> {
+            courseBD.setName(course.getName());
+            courseBD.setDescription(course.getDescription());
+        });
+        return ResponseEntity.status(HttpStatus.CREATED).body(updated);
     }
 
+    /**
+     * Enrols the students without loading the course's enrolments; the answer says, for
+     * each student, whether it was enrolled, already was, or is in another course.
+     */
     @PutMapping("/{id}/assign-student")
-    public ResponseEntity<?> assignStudent(@RequestBody List<Student> studentList,
-                                           @PathVariable Long id) {
-        Course courseBD = service.findById(id);
-        studentList.forEach(student -> {
-            CourseStudent courseStudent = new CourseStudent();
-            courseStudent.setStudentId(student.getId());
-            courseStudent.setCourse(courseBD);
-            courseBD.addCourseStudent(courseStudent);
-        });
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.save(courseBD));
+    public ResponseEntity<List<EnrollmentResult>> assignStudent(@RequestBody List<Student> studentList,
+                                                                @PathVariable Long id) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.enrollStudents(id, studentIds(studentList)));
     }
 
+    /**
+     * The counterpart of {@link #assignStudent}: the answer says, for each student, whether
+     * it was unenrolled or was not in the course.
+     */
     @DeleteMapping("/{id}/delete-student")
-    public ResponseEntity<Void> deleteStudent(@PathVariable Long id, @RequestBody List<Student> studentList) {
-        Course course = service.findById(id);
-        List<Long> studentIds = studentList.stream()
+    public ResponseEntity<List<EnrollmentResult>> deleteStudent(@PathVariable Long id,
+                                                                @RequestBody List<Student> studentList) {
+        return ResponseEntity.ok(service.unenrollStudents(id, studentIds(studentList)));
+    }
+
+    private static List<Long> studentIds(List<Student> studentList) {
+        return studentList.stream()
                 .map(Student::getId)
                 .collect(Collectors.toList());
-        course.getCourseStudents().removeIf(cs -> studentIds.contains(cs.getStudentId()));
-        service.save(course);
-        return ResponseEntity.noContent().build();
     }
 
     @PutMapping("/{id}/assign-exam")
     public ResponseEntity<?> assignExam(@RequestBody List<Exam> examList, @PathVariable Long id) {
-        Course courseBD = service.findById(id);
-        examList.forEach(courseBD::addExams);
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.save(courseBD));
+        Course updated = service.modify(id, courseBD -> examList.forEach(courseBD::addExams));
+        return ResponseEntity.status(HttpStatus.CREATED).body(updated);
     }
 
     @PutMapping("/{id}/delete-exam")
     public ResponseEntity<?> deleteExam(@RequestBody List<Exam> studentList,
                                         @PathVariable Long id) {
-        Course courseBD = service.findById(id);
-        studentList.forEach(courseBD::removeExams);
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.save(courseBD));
+        Course updated = service.modify(id, courseBD -> studentList.forEach(courseBD::removeExams));
+        return ResponseEntity.status(HttpStatus.CREATED).body(updated);
     }
 
+    /**
+     * The student's course, each exam marked as answered or not. The answer-service call
+     * runs while the course is read; whatever it has not returned by
+     * {@code courses.student-dashboard.deadline} after the request started leaves
+     * {@code replied} {@code null} (unknown) rather than failing the page.
+     */
     @GetMapping("/student/{id}")
     public ResponseEntity<?> searchBtStudentId(@PathVariable Long id) {
-        Course courseBD = service.findCourseByStudentId(id);
-
-        if (Objects.nonNull(courseBD)) {
-
-            List<Long> examsIds = (List<Long>) service.getExamsIdsWithAnswersByStudentId(id);
-
-            if (Objects.nonNull(examsIds)) {
-                List<Exam> exams = courseBD.getExams()
-                        .stream()
-                        .peek(exam -> {
-                            if (examsIds.contains(exam.getId())) {
-                                exam.setReplied(true);
-                            }
-                        }).collect(Collectors.toList());
+        long deadline = System.nanoTime() + dashboardDeadline.toNanos();
+        CompletableFuture<Iterable<Long>> repliedExams = service.getExamsIdsWithAnswersByStudentIdAsync(id);
+        Course courseBD;
+        try {
+            courseBD = service.findCourseByStudentId(id);
+        } catch (RuntimeException e) {
+            repliedExams.cancel(true);
+            throw e;
+        }
+        if (Objects.isNull(courseBD)) {
+            repliedExams.cancel(true);
+            return ResponseEntity.ok(null);
+        }
+        Set<Long> examsIds = awaitRepliedExams(id, repliedExams, deadline);
+        for (Exam exam : courseBD.getExams()) {
+            exam.setReplied(examsIds == null ? null : examsIds.contains(exam.getId()));
+        }
+        return ResponseEntity.ok(courseBD);
+    }
 
-                courseBD.setExams(exams);
+    /**
+     * The ids of the exams the student answered, or {@code null} when answer-service
+     * failed or missed the deadline.
+     */
+    private static Set<Long> awaitRepliedExams(Long studentId, CompletableFuture<Iterable<Long>> repliedExams,
+                                               long deadline) {
+        try {
+            Iterable<Long> ids = repliedExams.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            Set<Long> examsIds = new HashSet<>();
+            if (ids != null) {
+                ids.forEach(examsIds::add);
             }
+            return examsIds;
+        } catch (TimeoutException e) {
+            repliedExams.cancel(true);
+            log.warn("answer-service missed the deadline for student {}, replied left unknown", studentId);
+        } catch (ExecutionException e) {
+            log.warn("answer-service failed for student {}, replied left unknown: {}", studentId,
+                    e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return ResponseEntity.ok(courseBD);
+        return null;
     }
 
     @DeleteMapping("/delete-student/{id}")
@@ -180,4 +236,27 @@ public class CourseController extends CommonController<Course, CourseService> {
         service.deleteCourseStudentById(id);
         return ResponseEntity.noContent().build();
     }
+
+    @Override
+    protected Course toResponse(Course course) {
+        List<Student> students = course.getCourseStudents().stream()
+                .map(courseStudent -> {
+                    Student student = new Student();
+                    student.setId(courseStudent.getStudentId());
+                    return student;
+                }).collect(Collectors.toList());
+        Course response = copyOf(course);
+        response.setStudents(students);
+        return response;
+    }
+
+    /**
+     * The service may hand out a course shared with other requests (cached, or loaded
+     * once for several callers), so the students are set on a shallow copy.
+     */
+    private static Course copyOf(Course course) {
+        Course copy = new Course();
+        BeanUtils.copyProperties(course, copy);
+        return copy;
+    }
 }
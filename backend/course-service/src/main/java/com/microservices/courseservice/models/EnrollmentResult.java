@@ -0,0 +1,30 @@
+package com.microservices.courseservice.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What an enrolment request did for one student. {@code courseId} is only set for
+ * {@link Status#ENROLLED_ELSEWHERE}: a student belongs to one course at a time.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EnrollmentResult {
+
+    public enum Status {
+        ENROLLED, ALREADY_ENROLLED, ENROLLED_ELSEWHERE, UNENROLLED, NOT_ENROLLED
+    }
+
+    private final Long studentId;
+
+    private final Status status;
+
+    private final Long courseId;
+
+    public static EnrollmentResult of(Long studentId, Status status) {
+        return new EnrollmentResult(studentId, status, null);
+    }
+}
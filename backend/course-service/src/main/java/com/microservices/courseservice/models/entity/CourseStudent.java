@@ -8,6 +8,7 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -26,7 +27,8 @@ import lombok.Setter;
 public class CourseStudent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "courses_students_seq")
+    @SequenceGenerator(name = "courses_students_seq", sequenceName = "courses_students_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "student_id", unique = true)
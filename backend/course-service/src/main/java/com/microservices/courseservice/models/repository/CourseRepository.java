@@ -1,16 +1,46 @@
 package com.microservices.courseservice.models.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import com.microservices.commonservice.repository.CommonRepository;
 import com.microservices.courseservice.models.entity.Course;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import org.springframework.transaction.annotation.Transactional;
 
-public interface CourseRepository extends JpaRepository<Course, Long> {
+public interface CourseRepository extends JpaRepository<Course, Long>, CommonRepository<Course> {
+
+    /**
+     * Every course with its enrolments in one joined query, instead of one more query
+     * per course when {@code courseStudents} is first read. {@code distinct} only
+     * removes the duplicate parents in memory; it is not sent to the database.
+     */
+    @EntityGraph(attributePaths = "courseStudents")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("SELECT DISTINCT c FROM Course c")
+    List<Course> findAllWithCourseStudentsBy();
+
+    @EntityGraph(attributePaths = "courseStudents")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("SELECT DISTINCT c FROM Course c WHERE c.id IN :ids")
+    List<Course> findWithCourseStudentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * The ids of a page, so that the page itself can be fetched with its enrolments:
+     * a joined fetch cannot be limited in SQL without cutting a course's rows.
+     */
+    @Query(value = "SELECT c.id FROM Course c", countQuery = "SELECT COUNT(c) FROM Course c")
+    Page<Long> findIdsBy(Pageable pageable);
 
     @Query("SELECT c FROM Course c JOIN c.courseStudents cs WHERE cs.studentId = :studentId")
     Course findCourseByStudentId(@Param("studentId") Long studentId);
@@ -18,8 +48,28 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     @Query("SELECT c FROM Course c WHERE UPPER(c.name) LIKE UPPER(CONCAT('%', :text, '%')) OR UPPER(c.description) LIKE UPPER(CONCAT('%', :text, '%'))")
     Page<Course> findByNameOrDescriptionWithPageable(@Param("text") String text, Pageable pageable);
 
+    @Transactional
+    @Modifying
+    @Query("UPDATE Course c SET c.version = c.version + 1 WHERE c.id IN "
+            + "(SELECT cs.course.id FROM CourseStudent cs WHERE cs.studentId = :studentId)")
+    void incrementVersionByStudentId(@Param("studentId") Long studentId);
+
     @Transactional
     @Modifying
     @Query("DELETE FROM CourseStudent cs WHERE cs.studentId = :studentId")
     void deleteCourseStudentById(@Param("studentId") Long studentId);
+
+    @Query("SELECT cs.studentId AS studentId, cs.course.id AS courseId FROM CourseStudent cs"
+            + " WHERE cs.studentId IN :studentIds")
+    List<StudentEnrollment> findEnrollmentsByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CourseStudent cs WHERE cs.course.id = :courseId AND cs.studentId IN :studentIds")
+    int deleteEnrollments(@Param("courseId") Long courseId, @Param("studentIds") Collection<Long> studentIds);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Course c SET c.version = c.version + 1 WHERE c.id = :id")
+    void incrementVersion(@Param("id") Long id);
 }
\ No newline at end of file
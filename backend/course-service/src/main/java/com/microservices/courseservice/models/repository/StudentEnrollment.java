@@ -0,0 +1,11 @@
+package com.microservices.courseservice.models.repository;
+
+/**
+ * The course a student is enrolled in, read without loading either entity.
+ */
+public interface StudentEnrollment {
+
+    Long getStudentId();
+
+    Long getCourseId();
+}
@@ -1,9 +1,14 @@
 package com.microservices.courseservice.services;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import com.microservices.commonservice.service.CommonService;
 import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.courseservice.models.EnrollmentResult;
 import com.microservices.courseservice.models.entity.Course;
 
 public interface CourseService extends CommonService<Course> {
@@ -12,10 +17,16 @@ public interface CourseService extends CommonService<Course> {
 
     Iterable<Long> getExamsIdsWithAnswersByStudentId(Long studentId);
 
+    CompletableFuture<Iterable<Long>> getExamsIdsWithAnswersByStudentIdAsync(Long studentId);
+
     Iterable<Student> getStudentsByCourse(Iterable<Long> ids);
 
     void deleteCourseStudentById(Long id);
 
+    List<EnrollmentResult> enrollStudents(Long courseId, Collection<Long> studentIds);
+
+    List<EnrollmentResult> unenrollStudents(Long courseId, Collection<Long> studentIds);
+
     Page<Course> findByNameOrDescriptionWithPageable(String text, Pageable pageable);
 
 }
\ No newline at end of file
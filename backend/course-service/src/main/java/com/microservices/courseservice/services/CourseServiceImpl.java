@@ -1,48 +1,113 @@
 package com.microservices.courseservice.services;
 
+import com.microservices.commonservice.exceptions.ResourceNotFoundException;
+import com.microservices.commonservice.executor.BlockingExecutors;
+import com.microservices.commonservice.executor.ExecutorProperties;
 import com.microservices.commonservice.service.CommonServiceImpl;
+import com.microservices.commonservice.util.ValidationMessages;
 import com.microservices.commonstudent.models.entity.Student;
 import com.microservices.courseservice.clients.AnswerFeignClient;
 import com.microservices.courseservice.clients.StudentFeignClient;
+import com.microservices.courseservice.models.EnrollmentResult;
 import com.microservices.courseservice.models.entity.Course;
+import com.microservices.courseservice.models.entity.CourseStudent;
 import com.microservices.courseservice.models.repository.CourseRepository;
+import com.microservices.courseservice.models.repository.StudentEnrollment;
+import com.microservices.courseservice.students.StudentSummaryCache;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 public class CourseServiceImpl extends CommonServiceImpl<Course, CourseRepository> implements CourseService {
 
     @Autowired
     private CourseRepository repository; // Injection directe
 
+    /**
+     * {@code student_id} is unique, so a student enrolled meanwhile by another request is
+     * skipped rather than failing the whole batch.
+     */
+    private static final String INSERT_ENROLLMENT = "INSERT INTO courses_students (id, course_id, student_id)"
+            + " VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+
+    private static final int ENROLLMENT_LOOKUP_CHUNK = 1_000;
+
+    private static final String COURSE_STUDENTS = "courseStudents";
+
     private final AnswerFeignClient answerFeignClient;
     private final StudentFeignClient studentFeignClient;
+    private final StudentSummaryCache studentCache;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Calls to answer-service made while the request thread reads the database. Bounded,
+     * so a slow answer-service cannot pile up threads; callers already wait with a
+     * deadline.
+     */
+    private final ThreadPoolExecutor answerExecutor = BlockingExecutors.elastic(answerPool(), "answer-lookup-");
 
     public CourseServiceImpl(AnswerFeignClient answerFeignClient,
-                             StudentFeignClient studentFeignClient) {
+                             StudentFeignClient studentFeignClient,
+                             StudentSummaryCache studentCache,
+                             JdbcTemplate jdbcTemplate) {
         this.answerFeignClient = answerFeignClient;
         this.studentFeignClient = studentFeignClient;
+        this.studentCache = studentCache;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public Iterable<Course> findAll() {
-        return repository.findAll();
+    protected Course loadById(Long id) {
+        return repository.findById(id).orElse(null);
     }
 
+    /**
+     * Listings serialize every course's enrolments, so they are joined in rather than
+     * loaded one course at a time while the response is written.
+     */
     @Override
-    @Transactional(readOnly = true)
-    public Course findById(Long id) {
-        return repository.findById(id).orElse(null);
+    protected Iterable<Course> loadAll() {
+        return repository.findAllWithCourseStudentsBy();
     }
 
+    /**
+     * Same as {@link #loadAll()} for a page: one query for the ids of the page (plus the
+     * count), one for those courses and their enrolments, kept in page order.
+     */
     @Override
-    @Transactional
-    public Course save(Course course) {
-        return repository.save(course);
+    @Transactional(readOnly = true)
+    public Page<Course> findAllPage(Pageable pageable) {
+        Page<Long> ids = repository.findIdsBy(pageable);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, ids.getTotalElements());
+        }
+        Map<Long, Course> courses = repository.findWithCourseStudentsByIdIn(ids.getContent()).stream()
+                .collect(Collectors.toMap(Course::getId, Function.identity()));
+        return ids.map(courses::get);
     }
 
     @Override
@@ -57,15 +122,157 @@ public class CourseServiceImpl extends CommonServiceImpl<Course, CourseRepositor
         return answerFeignClient.getExamsByStudentId(studentId);
     }
 
+    /**
+     * A full pool fails the future at once rather than queue the call past any deadline.
+     */
+    @Override
+    public CompletableFuture<Iterable<Long>> getExamsIdsWithAnswersByStudentIdAsync(Long studentId) {
+        try {
+            return CompletableFuture.supplyAsync(() -> answerFeignClient.getExamsByStudentId(studentId),
+                    answerExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static ExecutorProperties.Elastic answerPool() {
+        ExecutorProperties.Elastic pool = new ExecutorProperties.Elastic();
+        pool.setMaxThreads(64);
+        pool.setQueueCapacity(128);
+        return pool;
+    }
+
+    @PreDestroy
+    public void shutdownAnswerLookups() {
+        answerExecutor.shutdown();
+    }
+
+    /**
+     * Served from the local student cache when it is enabled; only the students it does
+     * not hold fresh are asked from user-service. Everyone opening the same course at
+     * once shares one lookup.
+     */
     @Override
     public Iterable<Student> getStudentsByCourse(Iterable<Long> ids) {
+        if (ids instanceof Collection<Long> collection) {
+            return coalesce(COURSE_STUDENTS, new ArrayList<>(collection),
+                    () -> studentCache.getAll(collection, this::fetchStudents));
+        }
+        return studentFeignClient.getStudentsByCourse(ids);
+    }
+
+    /**
+     * Large courses go through the POST lookup, which also returns the students in the
+     * order of the ids.
+     */
+    private Iterable<Student> fetchStudents(Collection<Long> ids) {
+        if (ids.size() > StudentFeignClient.MAX_QUERY_STRING_IDS) {
+            return studentFeignClient.findStudentsByCourse(ids);
+        }
         return studentFeignClient.getStudentsByCourse(ids);
     }
 
     @Override
     @Transactional
     public void deleteCourseStudentById(Long studentId) {
+        repository.incrementVersionByStudentId(studentId); // Invalide l'ETag des cours concernés
         repository.deleteCourseStudentById(studentId); // Supprime l'association dans la base
+        studentCache.invalidate(studentId);
+        evictAll();
+    }
+
+    /**
+     * Enrols the students with one query for where they already are and one batched
+     * insert for the others; the course's enrolments are never loaded. Students in
+     * another course are reported, not moved.
+     */
+    @Override
+    @Transactional
+    public List<EnrollmentResult> enrollStudents(Long courseId, Collection<Long> studentIds) {
+        if (!repository.existsById(courseId)) {
+            throw new ResourceNotFoundException(ValidationMessages.RESOURCE_NO_FOUND);
+        }
+        Set<Long> ids = distinct(studentIds);
+        Map<Long, Long> existing = enrollments(ids);
+        List<Long> newIds = ids.stream().filter(id -> !existing.containsKey(id)).collect(Collectors.toList());
+        Map<Long, Long> inserted = Map.of();
+        if (!newIds.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(newIds.size());
+            for (Long studentId : newIds) {
+                rows.add(new Object[]{nextEnrollmentId(), courseId, studentId});
+            }
+            int[] counts = jdbcTemplate.batchUpdate(INSERT_ENROLLMENT, rows);
+            if (Arrays.stream(counts).anyMatch(count -> count != 1)) {
+                // some rows were skipped, or the driver rewrote the batch and did not say
+                inserted = enrollments(newIds);
+            }
+            repository.incrementVersion(courseId); // Invalide l'ETag du cours
+            evict(courseId);
+        }
+        List<EnrollmentResult> results = new ArrayList<>(ids.size());
+        for (Long studentId : ids) {
+            Long current = existing.get(studentId);
+            EnrollmentResult.Status status = EnrollmentResult.Status.ALREADY_ENROLLED;
+            if (current == null) {
+                current = inserted.getOrDefault(studentId, courseId);
+                status = EnrollmentResult.Status.ENROLLED;
+            }
+            results.add(current.equals(courseId) ? EnrollmentResult.of(studentId, status)
+                    : new EnrollmentResult(studentId, EnrollmentResult.Status.ENROLLED_ELSEWHERE, current));
+        }
+        return results;
+    }
+
+    /**
+     * One {@code DELETE ... WHERE course_id = ? AND student_id IN (...)}; students that
+     * are not in this course are reported as such.
+     */
+    @Override
+    @Transactional
+    public List<EnrollmentResult> unenrollStudents(Long courseId, Collection<Long> studentIds) {
+        Set<Long> ids = distinct(studentIds);
+        Map<Long, Long> enrolled = enrollments(ids);
+        List<Long> here = ids.stream()
+                .filter(id -> courseId.equals(enrolled.get(id)))
+                .collect(Collectors.toList());
+        if (!here.isEmpty()) {
+            repository.deleteEnrollments(courseId, here);
+            repository.incrementVersion(courseId); // Invalide l'ETag du cours
+            evict(courseId);
+        }
+        return ids.stream()
+                .map(id -> EnrollmentResult.of(id, courseId.equals(enrolled.get(id))
+                        ? EnrollmentResult.Status.UNENROLLED : EnrollmentResult.Status.NOT_ENROLLED))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Long> enrollments(Collection<Long> studentIds) {
+        Map<Long, Long> courseByStudent = new HashMap<>();
+        List<Long> ids = new ArrayList<>(studentIds);
+        for (int from = 0; from < ids.size(); from += ENROLLMENT_LOOKUP_CHUNK) {
+            for (StudentEnrollment enrollment : repository.findEnrollmentsByStudentIdIn(
+                    ids.subList(from, Math.min(from + ENROLLMENT_LOOKUP_CHUNK, ids.size())))) {
+                courseByStudent.put(enrollment.getStudentId(), enrollment.getCourseId());
+            }
+        }
+        return courseByStudent;
+    }
+
+    private static Set<Long> distinct(Collection<Long> studentIds) {
+        Set<Long> ids = new LinkedHashSet<>(studentIds);
+        ids.remove(null);
+        return ids;
+    }
+
+    /**
+     * Ids come from the same generator and optimizer as entities persisted through
+     * Hibernate, so the two never collide.
+     */
+    private Long nextEnrollmentId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator generator = session.getFactory().getMetamodel()
+                .entityPersister(CourseStudent.class).getIdentifierGenerator();
+        return (Long) generator.generate(session, null);
     }
 
     @Override
@@ -0,0 +1,181 @@
+package com.microservices.courseservice.students;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.microservices.commonstudent.models.entity.Student;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Local copy of the students shown on course pages, keyed by id, so that a course
+ * page only asks user-service for the students it has not seen lately, all in one call.
+ * <p>
+ * An entry is fresh for {@code ttl}; after that it is refetched, but kept for up to
+ * {@code maxStaleness} and served as it is when the refetch fails, so a course page
+ * keeps working while user-service is down or timing out. Names and emails change
+ * rarely enough that a stale one is better than an error.
+ * <p>
+ * Metrics: {@value #LOOKUPS} counted per id and tagged {@code fresh}, {@code expired} or
+ * {@code missing}; {@value #STALE_AGE}, the age in seconds of each stale student served;
+ * and {@value #SIZE}.
+ */
+@Component
+public class StudentSummaryCache {
+
+    static final String LOOKUPS = "courses.student.cache.lookups";
+
+    static final String STALE_AGE = "courses.student.cache.stale.age";
+
+    static final String SIZE = "courses.student.cache.size";
+
+    private static final Logger log = LoggerFactory.getLogger(StudentSummaryCache.class);
+
+    private final boolean enabled;
+
+    private final long ttlNanos;
+
+    private final Ticker ticker;
+
+    private final Cache<Long, Entry> cache;
+
+    private final Counter fresh;
+
+    private final Counter expired;
+
+    private final Counter missing;
+
+    private final DistributionSummary staleAge;
+
+    @Autowired
+    public StudentSummaryCache(StudentSummaryCacheProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    StudentSummaryCache(StudentSummaryCacheProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.enabled = properties.isEnabled();
+        this.ttlNanos = properties.getTtl().toNanos();
+        this.ticker = ticker;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getMaxStaleness().plus(properties.getTtl()))
+                .ticker(ticker)
+                .build();
+        this.fresh = lookups(meterRegistry, "fresh");
+        this.expired = lookups(meterRegistry, "expired");
+        this.missing = lookups(meterRegistry, "missing");
+        this.staleAge = DistributionSummary.builder(STALE_AGE)
+                .description("Age of the students served from cache because user-service could not be reached")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder(SIZE, cache, Cache::estimatedSize)
+                .description("Students kept in the course-service cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The students with these ids, in the order of the ids. Ids that are not fresh are
+     * passed to {@code loader} in one call; ids it does not return are students that no
+     * longer exist and are left out. If the loader fails, expired entries are served
+     * instead; the failure is only rethrown when some id has never been loaded.
+     */
+    public List<Student> getAll(Collection<Long> ids, Function<Collection<Long>, Iterable<Student>> loader) {
+        if (!enabled) {
+            List<Student> students = new ArrayList<>();
+            loader.apply(ids).forEach(students::add);
+            return students;
+        }
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        Map<Long, Entry> found = new HashMap<>(cache.getAllPresent(distinct));
+        long now = ticker.read();
+        List<Long> toFetch = new ArrayList<>();
+        boolean anyMissing = false;
+        for (Long id : distinct) {
+            Entry entry = found.get(id);
+            if (entry == null) {
+                missing.increment();
+                anyMissing = true;
+                toFetch.add(id);
+            } else if (now - entry.loadedAt >= ttlNanos) {
+                expired.increment();
+                toFetch.add(id);
+            } else {
+                fresh.increment();
+            }
+        }
+        if (!toFetch.isEmpty()) {
+            Iterable<Student> loaded;
+            try {
+                loaded = loader.apply(toFetch.size() == distinct.size() ? ids : toFetch);
+            } catch (RuntimeException e) {
+                if (anyMissing) {
+                    throw e;
+                }
+                log.warn("Could not refresh {} students, serving cached copies: {}", toFetch.size(), e.toString());
+                toFetch.forEach(id -> staleAge.record(
+                        TimeUnit.NANOSECONDS.toSeconds(now - found.get(id).loadedAt)));
+                return inOrder(distinct, found);
+            }
+            toFetch.forEach(found::remove);
+            for (Student student : loaded) {
+                Entry entry = new Entry(student, now);
+                cache.put(student.getId(), entry);
+                found.put(student.getId(), entry);
+            }
+            toFetch.stream().filter(id -> !found.containsKey(id)).forEach(cache::invalidate);
+        }
+        return inOrder(distinct, found);
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    private static List<Student> inOrder(Set<Long> ids, Map<Long, Entry> entries) {
+        List<Student> students = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                students.add(entry.student);
+            }
+        }
+        return students;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(LOOKUPS)
+                .description("Student ids looked up in the course-service cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Entry {
+
+        private final Student student;
+
+        private final long loadedAt;
+
+        private Entry(Student student, long loadedAt) {
+            this.student = student;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
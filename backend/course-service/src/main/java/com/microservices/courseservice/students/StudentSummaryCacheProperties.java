@@ -0,0 +1,34 @@
+package com.microservices.courseservice.students;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "courses.student-cache")
+public class StudentSummaryCacheProperties {
+
+    /**
+     * Off by default so that every lookup goes to user-service.
+     */
+    private boolean enabled;
+
+    private long maximumSize = 100_000;
+
+    /**
+     * How long a student is served without asking user-service again.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * How long an expired student is kept to answer with while user-service is down or
+     * too slow.
+     */
+    private Duration maxStaleness = Duration.ofHours(24);
+}
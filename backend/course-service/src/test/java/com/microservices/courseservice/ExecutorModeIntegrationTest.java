@@ -0,0 +1,131 @@
+package com.microservices.courseservice;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the real Tomcat connector, with the request executor of
+ * {@code common.executor.mode}, against a downstream that answers only once every request
+ * is waiting on it, the way requests wait on a slow service through Feign. Tomcat's own
+ * pool is cut down to {@value #TOMCAT_THREADS} threads: if the executor were not plugged
+ * into the connector, no more than that many requests could reach the downstream at once.
+ */
+@SpringBootTest(classes = CourseServiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.profiles.active=test-unit",
+                "common.executor.mode=elastic",
+                "common.executor.elastic.max-threads=" + ExecutorModeIntegrationTest.REQUESTS,
+                "server.tomcat.threads.max=" + ExecutorModeIntegrationTest.TOMCAT_THREADS
+        })
+@Import(ExecutorModeIntegrationTest.DownstreamCallingController.class)
+class ExecutorModeIntegrationTest {
+
+    static final int REQUESTS = 60;
+
+    static final int TOMCAT_THREADS = 10;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    private static final AtomicInteger peak = new AtomicInteger();
+
+    private static final CountDownLatch allWaiting = new CountDownLatch(REQUESTS);
+
+    private static HttpServer downstream;
+
+    private static ExecutorService downstreamThreads;
+
+    private static URI downstreamUri;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeAll
+    static void startDownstream() throws IOException {
+        downstreamThreads = Executors.newCachedThreadPool();
+        downstream = HttpServer.create(new InetSocketAddress("localhost", 0), REQUESTS);
+        downstream.setExecutor(downstreamThreads);
+        downstream.createContext("/exams", exchange -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            allWaiting.countDown();
+            try {
+                allWaiting.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            inFlight.decrementAndGet();
+        });
+        downstream.start();
+        downstreamUri = URI.create("http://localhost:" + downstream.getAddress().getPort() + "/exams");
+    }
+
+    @AfterAll
+    static void stopDownstream() {
+        downstream.stop(0);
+        downstreamThreads.shutdownNow();
+    }
+
+    @Test
+    void shouldServeMoreBlockedRequestsAtOnceThanTomcatHasThreads() {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/test/downstream")).build();
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> served = response.orTimeout(30, TimeUnit.SECONDS).join();
+            assertThat(served.statusCode()).isEqualTo(200);
+            assertThat(served.body()).startsWith("http-request-");
+        }
+        assertThat(peak.get()).isEqualTo(REQUESTS).isGreaterThan(TOMCAT_THREADS);
+    }
+
+    /**
+     * Blocks the request thread on the downstream as a Feign client does, and says which
+     * thread served the request.
+     */
+    @RestController
+    static class DownstreamCallingController {
+
+        private final HttpClient client = HttpClient.newHttpClient();
+
+        @GetMapping("/test/downstream")
+        public String callDownstream() throws IOException, InterruptedException {
+            client.send(HttpRequest.newBuilder(downstreamUri).build(), HttpResponse.BodyHandlers.discarding());
+            return Thread.currentThread().getName();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.microservices.courseservice.clients;
+
+import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.courseservice.CourseServiceApplication;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The real Feign client, resolved through the load balancer, against a stub that only
+ * answers on the paths user-service's {@code StudentController} is mapped to.
+ */
+@SpringBootTest(classes = CourseServiceApplication.class, properties = {
+        "spring.profiles.active=test-unit",
+        "spring.cloud.discovery.enabled=true"
+})
+class StudentFeignClientIntegrationTest {
+
+    private static final String PATH = "/students/students-by-course";
+
+    private static final String STUDENTS = "[{\"id\":1,\"name\":\"Ana\",\"lastName\":\"García\",\"email\":\"ana@example.com\"},"
+            + "{\"id\":2,\"name\":\"John\",\"lastName\":\"Doe\",\"email\":\"john@example.com\"}]";
+
+    private static final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private static final HttpServer userService = start();
+
+    @Autowired
+    private StudentFeignClient studentFeignClient;
+
+    @DynamicPropertySource
+    static void userServiceInstance(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.user-service[0].uri",
+                () -> "http://localhost:" + userService.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stop() {
+        userService.stop(0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        requests.clear();
+    }
+
+    @Test
+    void shouldGetStudentsByCourseWithIdsInTheQueryString() {
+        Iterable<Student> students = studentFeignClient.getStudentsByCourse(List.of(1L, 2L));
+
+        assertThat(students).extracting(Student::getName).containsExactly("Ana", "John");
+        assertThat(requests).containsExactly("GET " + PATH + "?ids=1&ids=2");
+    }
+
+    @Test
+    void shouldPostTheIdsWhenThereAreTooManyForTheQueryString() {
+        Iterable<Student> students = studentFeignClient.findStudentsByCourse(List.of(1L, 2L));
+
+        assertThat(students).extracting(Student::getEmail).containsExactly("ana@example.com", "john@example.com");
+        assertThat(requests).containsExactly("POST " + PATH + " [1,2]");
+    }
+
+    private static HttpServer start() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", StudentFeignClientIntegrationTest::handle);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + (body.isEmpty() ? "" : " " + body));
+        boolean mapped = exchange.getRequestURI().getPath().equals(PATH)
+                && ("GET".equals(exchange.getRequestMethod()) || "POST".equals(exchange.getRequestMethod()));
+        byte[] response = (mapped ? STUDENTS : "").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(mapped ? 200 : 404, response.length == 0 ? -1 : response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
@@ -4,8 +4,10 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import com.microservices.courseservice.CourseServiceApplication;
 import com.microservices.courseservice.config.TestContainersConfig;
 import com.microservices.courseservice.models.entity.Course;
+import com.microservices.courseservice.models.EnrollmentResult;
 import com.microservices.courseservice.models.entity.CourseStudent;
 import com.microservices.courseservice.models.repository.CourseRepository;
+import com.microservices.courseservice.models.repository.StudentEnrollment;
 import com.microservices.commonstudent.models.entity.Student;
 import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,6 +29,7 @@ import com.microservices.courseservice.clients.AnswerFeignClient;
 import com.microservices.courseservice.clients.StudentFeignClient;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
@@ -103,17 +106,20 @@ public class CourseControllerIntegrationTest {
         student.setId(1L);
 
         HttpEntity<?> request = new HttpEntity<>(Collections.singletonList(student));
-        ResponseEntity<Course> response = restTemplate.exchange(
+        ResponseEntity<EnrollmentResult[]> response = restTemplate.exchange(
                 baseUrl + "/" + savedCourse.getId() + "/assign-student",
                 HttpMethod.PUT,
                 request,
-                Course.class
+                EnrollmentResult[].class
         );
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
         assertThat(response.getBody()).isNotNull();
-        assertThat(response.getBody().getCourseStudents()).hasSize(1);
-        assertThat(response.getBody().getCourseStudents().get(0).getStudentId()).isEqualTo(1L);
+        assertThat(response.getBody()).hasSize(1);
+        assertThat(response.getBody()[0].getStudentId()).isEqualTo(1L);
+        assertThat(response.getBody()[0].getStatus()).isEqualTo(EnrollmentResult.Status.ENROLLED);
+        assertThat(courseRepository.findEnrollmentsByStudentIdIn(List.of(1L)))
+                .extracting(StudentEnrollment::getCourseId).containsExactly(savedCourse.getId());
     }
 
     @Test
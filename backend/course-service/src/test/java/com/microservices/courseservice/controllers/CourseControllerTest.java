@@ -3,6 +3,7 @@ package com.microservices.courseservice.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microservices.commonexam.models.entity.Exam;
 import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.courseservice.models.EnrollmentResult;
 import com.microservices.courseservice.models.entity.Course;
 import com.microservices.courseservice.models.entity.CourseStudent;
 import com.microservices.courseservice.services.CourseService;
@@ -20,8 +21,12 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -37,7 +42,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         "spring.jpa.hibernate.ddl-auto=create-drop",
         "spring.cloud.discovery.enabled=false",
         "eureka.client.enabled=false",
-        "spring.cloud.openfeign.enabled=false"
+        "spring.cloud.openfeign.enabled=false",
+        "courses.student-dashboard.deadline=200ms"
 })
 public class CourseControllerTest {
 
@@ -116,6 +122,31 @@ public class CourseControllerTest {
         verify(courseService, times(1)).getStudentsByCourse(anyList());
     }
 
+    @Test
+    public void testPatchWithTheETagOfShow() throws Exception {
+        sampleCourse.setVersion(2L);
+        when(courseService.findById(1L)).thenReturn(sampleCourse);
+        when(courseService.patch(eq(1L), eq(2L), any())).thenReturn(3L);
+
+        String eTag = mockMvc.perform(get("/courses/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(patch("/courses/1")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", eTag)
+                        .content("{\"name\":\"Algebra\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1-3\""));
+        verify(courseService).patch(1L, 2L, Collections.singletonMap("name", "Algebra"));
+
+        mockMvc.perform(patch("/courses/1")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "W/" + eTag)
+                        .content("{\"name\":\"Algebra\"}"))
+                .andExpect(status().isPreconditionFailed());
+        verify(courseService, times(1)).patch(any(), any(), any());
+    }
+
     @Test
     public void testIndex() throws Exception {
         Page<Course> page = new PageImpl<>(Arrays.asList(sampleCourse));
@@ -145,68 +176,94 @@ public class CourseControllerTest {
         Course updatedCourse = new Course();
         updatedCourse.setName("Updated Course");
         updatedCourse.setDescription("Updated Description");
-        when(courseService.findById(1L)).thenReturn(sampleCourse);
-        when(courseService.update(any(Course.class))).thenReturn(updatedCourse);
+        modifying(sampleCourse);
 
         String json = objectMapper.writeValueAsString(updatedCourse);
         mockMvc.perform(put("/courses/1/course")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(json))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$.name").value("Updated Course"));
-        verify(courseService, times(1)).findById(1L);
-        verify(courseService, times(1)).update(any(Course.class));
+                .andExpect(jsonPath("$.name").value("Updated Course"))
+                .andExpect(jsonPath("$.description").value("Updated Description"));
+        verify(courseService, never()).findById(1L);
+        verify(courseService, times(1)).modify(eq(1L), any());
     }
 
     @Test
     public void testAssignStudent() throws Exception {
-        when(courseService.findById(1L)).thenReturn(sampleCourse);
-        when(courseService.save(any(Course.class))).thenReturn(sampleCourse);
+        Student other = new Student();
+        other.setId(2L);
+        when(courseService.enrollStudents(1L, Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                EnrollmentResult.of(1L, EnrollmentResult.Status.ENROLLED),
+                new EnrollmentResult(2L, EnrollmentResult.Status.ENROLLED_ELSEWHERE, 7L)));
 
-        String json = objectMapper.writeValueAsString(Arrays.asList(sampleStudent));
+        String json = objectMapper.writeValueAsString(Arrays.asList(sampleStudent, other));
         mockMvc.perform(put("/courses/1/assign-student")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(json))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$.name").value("Test Course"));
-        verify(courseService, times(1)).findById(1L);
-        verify(courseService, times(1)).save(any(Course.class));
+                .andExpect(jsonPath("$[0].status").value("ENROLLED"))
+                .andExpect(jsonPath("$[0].courseId").doesNotExist())
+                .andExpect(jsonPath("$[1].status").value("ENROLLED_ELSEWHERE"))
+                .andExpect(jsonPath("$[1].courseId").value(7L));
+        verify(courseService, never()).findById(1L);
+        verify(courseService, never()).save(any(Course.class));
     }
 
     @Test
     public void testDeleteStudent() throws Exception {
-        when(courseService.findById(1L)).thenReturn(sampleCourse);
-        when(courseService.save(any(Course.class))).thenReturn(sampleCourse);
+        when(courseService.unenrollStudents(1L, Arrays.asList(1L)))
+                .thenReturn(Arrays.asList(EnrollmentResult.of(1L, EnrollmentResult.Status.UNENROLLED)));
 
         String json = objectMapper.writeValueAsString(Arrays.asList(sampleStudent));
         mockMvc.perform(delete("/courses/1/delete-student") // Changé de put() à delete()
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(json))
-                .andExpect(status().isNoContent()) // Changé de 201 à 204
-                .andExpect(jsonPath("$.name").doesNotExist()); // Pas de contenu retourné
-        verify(courseService, times(1)).findById(1L);
-        verify(courseService, times(1)).save(any(Course.class));
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].studentId").value(1L))
+                .andExpect(jsonPath("$[0].status").value("UNENROLLED"));
+        verify(courseService, times(1)).unenrollStudents(1L, Arrays.asList(1L));
+        verify(courseService, never()).save(any(Course.class));
+    }
+
+    @Test
+    public void testDeleteStudent_ReportsStudentsNotEnrolled() throws Exception {
+        Student other = new Student();
+        other.setId(2L);
+        when(courseService.unenrollStudents(1L, Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                EnrollmentResult.of(1L, EnrollmentResult.Status.UNENROLLED),
+                EnrollmentResult.of(2L, EnrollmentResult.Status.NOT_ENROLLED)));
+
+        String json = objectMapper.writeValueAsString(Arrays.asList(sampleStudent, other));
+        mockMvc.perform(delete("/courses/1/delete-student")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("UNENROLLED"))
+                .andExpect(jsonPath("$[1].studentId").value(2L))
+                .andExpect(jsonPath("$[1].status").value("NOT_ENROLLED"))
+                .andExpect(jsonPath("$[1].courseId").doesNotExist());
+        verify(courseService, never()).findById(1L);
     }
 
     @Test
     public void testAssignExam() throws Exception {
-        when(courseService.findById(1L)).thenReturn(sampleCourse);
-        when(courseService.save(any(Course.class))).thenReturn(sampleCourse);
+        modifying(sampleCourse);
 
         String json = objectMapper.writeValueAsString(Arrays.asList(sampleExam));
         mockMvc.perform(put("/courses/1/assign-exam")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(json))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$.name").value("Test Course"));
-        verify(courseService, times(1)).findById(1L);
-        verify(courseService, times(1)).save(any(Course.class));
+                .andExpect(jsonPath("$.name").value("Test Course"))
+                .andExpect(jsonPath("$.exams[0].id").value(1L));
+        verify(courseService, never()).findById(1L);
+        verify(courseService, times(1)).modify(eq(1L), any());
     }
 
     @Test
     public void testDeleteExam() throws Exception {
-        when(courseService.findById(1L)).thenReturn(sampleCourse);
-        when(courseService.save(any(Course.class))).thenReturn(sampleCourse);
+        modifying(sampleCourse);
 
         String json = objectMapper.writeValueAsString(Arrays.asList(sampleExam));
         mockMvc.perform(put("/courses/1/delete-exam")
@@ -214,15 +271,16 @@ public class CourseControllerTest {
                         .content(json))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.name").value("Test Course"));
-        verify(courseService, times(1)).findById(1L);
-        verify(courseService, times(1)).save(any(Course.class));
+        verify(courseService, never()).findById(1L);
+        verify(courseService, times(1)).modify(eq(1L), any());
     }
 
     @Test
     public void testSearchByStudentId() throws Exception {
         sampleCourse.setExams(Arrays.asList(sampleExam));
         when(courseService.findCourseByStudentId(1L)).thenReturn(sampleCourse);
-        when(courseService.getExamsIdsWithAnswersByStudentId(1L)).thenReturn(Arrays.asList(1L));
+        when(courseService.getExamsIdsWithAnswersByStudentIdAsync(1L))
+                .thenReturn(CompletableFuture.completedFuture(Arrays.asList(1L)));
 
         mockMvc.perform(get("/courses/student/1")
                         .contentType(MediaType.APPLICATION_JSON))
@@ -230,7 +288,36 @@ public class CourseControllerTest {
                 .andExpect(jsonPath("$.name").value("Test Course"))
                 .andExpect(jsonPath("$.exams[0].replied").value(true));
         verify(courseService, times(1)).findCourseByStudentId(1L);
-        verify(courseService, times(1)).getExamsIdsWithAnswersByStudentId(1L);
+        verify(courseService, times(1)).getExamsIdsWithAnswersByStudentIdAsync(1L);
+    }
+
+    @Test
+    public void testSearchByStudentId_RepliedUnknownWhenAnswerServiceMissesTheDeadline() throws Exception {
+        Exam other = new Exam();
+        other.setId(2L);
+        sampleCourse.setExams(Arrays.asList(sampleExam, other));
+        when(courseService.findCourseByStudentId(1L)).thenReturn(sampleCourse);
+        when(courseService.getExamsIdsWithAnswersByStudentIdAsync(1L)).thenReturn(new CompletableFuture<>());
+
+        mockMvc.perform(get("/courses/student/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exams[0].replied").value(nullValue()))
+                .andExpect(jsonPath("$.exams[1].replied").value(nullValue()));
+
+        when(courseService.getExamsIdsWithAnswersByStudentIdAsync(1L))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("answer-service down")));
+
+        mockMvc.perform(get("/courses/student/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exams[1].replied").value(nullValue()));
+
+        when(courseService.getExamsIdsWithAnswersByStudentIdAsync(1L))
+                .thenReturn(CompletableFuture.completedFuture(Arrays.asList(2L)));
+
+        mockMvc.perform(get("/courses/student/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exams[0].replied").value(false))
+                .andExpect(jsonPath("$.exams[1].replied").value(true));
     }
 
     @Test
@@ -242,4 +329,16 @@ public class CourseControllerTest {
                 .andExpect(status().isNoContent());
         verify(courseService, times(1)).deleteCourseStudentById(1L);
     }
+
+    /**
+     * Lets {@code modify} apply the controller's changes to {@code course}, as the real
+     * service does to the managed entity.
+     */
+    @SuppressWarnings("unchecked")
+    private void modifying(Course course) {
+        when(courseService.modify(eq(1L), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept(course);
+            return course;
+        });
+    }
 }
@@ -1,9 +1,12 @@
 package com.microservices.courseservice.services;
 
+import com.microservices.commonservice.exceptions.ResourceNotFoundException;
 import com.microservices.courseservice.config.TestContainersConfig;
+import com.microservices.courseservice.models.EnrollmentResult;
 import com.microservices.courseservice.models.entity.Course;
 import com.microservices.courseservice.models.entity.CourseStudent;
 import com.microservices.courseservice.models.repository.CourseRepository;
+import com.microservices.courseservice.models.repository.StudentEnrollment;
 import com.microservices.commonstudent.models.entity.Student;
 import com.microservices.courseservice.clients.AnswerFeignClient;
 import com.microservices.courseservice.clients.StudentFeignClient;
@@ -16,21 +19,27 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.any;
 
 @SpringBootTest
 @ActiveProfiles("test-unit")
 @Transactional
-@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE) // H2 en mode MySQL du profil, pour ON DUPLICATE KEY
 public class CourseServiceIntegrationTest {
 
     @Autowired
@@ -126,4 +135,89 @@ public class CourseServiceIntegrationTest {
         assertThat(updatedCourse).isNotNull();
         assertThat(updatedCourse.getCourseStudents()).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldListCoursesAndTheirStudentsInAConstantNumberOfQueries() {
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Course course = new Course();
+            course.setName(String.format("Course %02d", i));
+            for (int j = 0; j < 3; j++) {
+                CourseStudent cs = new CourseStudent();
+                cs.setCourse(course);
+                cs.setStudentId(i * 10L + j);
+                course.addCourseStudent(cs);
+            }
+            courses.add(course);
+        }
+        courseRepository.saveAll(courses);
+        courseRepository.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            List<Long> studentIds = new ArrayList<>();
+            courseService.findAll().forEach(course -> course.getCourseStudents()
+                    .forEach(cs -> studentIds.add(cs.getStudentId())));
+            assertThat(studentIds).hasSize(60);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+            entityManager.clear();
+            statistics.clear();
+            Page<Course> page = courseService.findAllPage(PageRequest.of(1, 5, Sort.by("name")));
+            assertThat(page.getContent()).extracting(Course::getName)
+                    .containsExactly("Course 05", "Course 06", "Course 07", "Course 08", "Course 09");
+            assertThat(page.getContent()).allSatisfy(course -> assertThat(course.getCourseStudents()).hasSize(3));
+            assertThat(page.getTotalElements()).isEqualTo(20);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    void shouldEnrolAndUnenrolStudentsWithoutLoadingTheCourse() {
+        Course other = new Course();
+        other.setName("Other Course");
+        CourseStudent elsewhere = new CourseStudent();
+        elsewhere.setCourse(other);
+        elsewhere.setStudentId(3L);
+        other.addCourseStudent(elsewhere);
+        courseRepository.save(other);
+        Course course = courseRepository.saveAndFlush(sampleCourse);
+        Long version = course.getVersion();
+        entityManager.clear();
+
+        List<EnrollmentResult> enrolled = courseService.enrollStudents(course.getId(), Arrays.asList(1L, 2L, 3L, 1L));
+        assertThat(enrolled).extracting(EnrollmentResult::getStudentId).containsExactly(1L, 2L, 3L);
+        assertThat(enrolled).extracting(EnrollmentResult::getStatus).containsExactly(
+                EnrollmentResult.Status.ENROLLED, EnrollmentResult.Status.ENROLLED,
+                EnrollmentResult.Status.ENROLLED_ELSEWHERE);
+        assertThat(enrolled.get(2).getCourseId()).isEqualTo(other.getId());
+
+        assertThat(courseService.enrollStudents(course.getId(), Arrays.asList(2L, 4L)))
+                .extracting(EnrollmentResult::getStatus)
+                .containsExactly(EnrollmentResult.Status.ALREADY_ENROLLED, EnrollmentResult.Status.ENROLLED);
+
+        assertThat(courseService.unenrollStudents(course.getId(), Arrays.asList(1L, 3L, 5L)))
+                .extracting(EnrollmentResult::getStatus)
+                .containsExactly(EnrollmentResult.Status.UNENROLLED, EnrollmentResult.Status.NOT_ENROLLED,
+                        EnrollmentResult.Status.NOT_ENROLLED);
+
+        entityManager.clear();
+        Course reloaded = courseRepository.findById(course.getId()).orElseThrow();
+        assertThat(reloaded.getCourseStudents()).extracting(CourseStudent::getStudentId)
+                .containsExactlyInAnyOrder(2L, 4L);
+        assertThat(reloaded.getVersion()).isEqualTo(version + 3);
+        assertThat(courseRepository.findEnrollmentsByStudentIdIn(List.of(3L)))
+                .extracting(StudentEnrollment::getCourseId).containsExactly(other.getId());
+    }
+
+    @Test
+    void shouldRefuseToEnrolStudentsInAMissingCourse() {
+        assertThatThrownBy(() -> courseService.enrollStudents(-1L, List.of(1L)))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+}
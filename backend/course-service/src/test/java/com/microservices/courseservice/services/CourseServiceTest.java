@@ -21,6 +21,8 @@ import javax.persistence.EntityManager;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -126,6 +128,18 @@ public class CourseServiceTest {
         verify(studentFeignClient, times(1)).getStudentsByCourse(ids);
     }
 
+    @Test
+    public void testGetStudentsByCourse_PostsLargeIdSets() {
+        List<Long> ids = LongStream.rangeClosed(1, StudentFeignClient.MAX_QUERY_STRING_IDS + 1)
+                .boxed().collect(Collectors.toList());
+        when(studentFeignClient.findStudentsByCourse(ids)).thenReturn(Arrays.asList(sampleStudent));
+
+        Iterable<Student> students = courseService.getStudentsByCourse(ids);
+
+        assertEquals(1, ((List<Student>) students).size());
+        verify(studentFeignClient, never()).getStudentsByCourse(any());
+    }
+
     @Test
     public void testDeleteCourseStudentById() {
         // Arrange
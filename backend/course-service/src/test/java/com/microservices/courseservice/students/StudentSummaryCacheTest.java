@@ -0,0 +1,105 @@
+package com.microservices.courseservice.students;
+
+import com.microservices.commonstudent.models.entity.Student;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StudentSummaryCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final List<Collection<Long>> calls = new ArrayList<>();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private StudentSummaryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        StudentSummaryCacheProperties properties = new StudentSummaryCacheProperties();
+        properties.setEnabled(true);
+        properties.setTtl(Duration.ofMinutes(10));
+        properties.setMaxStaleness(Duration.ofHours(1));
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new StudentSummaryCache(properties, meterRegistry, now::get);
+    }
+
+    @Test
+    void shouldOnlyFetchTheStudentsItDoesNotHold() {
+        assertThat(cache.getAll(List.of(1L, 2L), this::load)).extracting(Student::getId).containsExactly(1L, 2L);
+        assertThat(cache.getAll(List.of(3L, 2L, 1L), this::load)).extracting(Student::getId)
+                .containsExactly(3L, 2L, 1L);
+        assertThat(cache.getAll(List.of(1L, 3L), this::load)).extracting(Student::getId).containsExactly(1L, 3L);
+
+        assertThat(calls).containsExactly(List.of(1L, 2L), List.of(3L));
+        assertThat(lookups("fresh")).isEqualTo(4);
+        assertThat(lookups("missing")).isEqualTo(3);
+        assertThat(meterRegistry.get(StudentSummaryCache.SIZE).gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRefetchExpiredStudentsAndDropDeletedOnes() {
+        cache.getAll(List.of(1L, 2L), this::load);
+        now.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        List<Student> students = cache.getAll(List.of(1L, 2L), ids -> load(List.of(1L)));
+
+        assertThat(students).extracting(Student::getId).containsExactly(1L);
+        assertThat(lookups("expired")).isEqualTo(2);
+        assertThat(cache.getAll(List.of(2L), this::load)).extracting(Student::getId).containsExactly(2L);
+        assertThat(lookups("missing")).isEqualTo(3);
+    }
+
+    @Test
+    void shouldServeStaleStudentsWhenUserServiceFails() {
+        cache.getAll(List.of(1L, 2L), this::load);
+        now.addAndGet(Duration.ofMinutes(30).toNanos());
+
+        List<Student> students = cache.getAll(List.of(2L, 1L), ids -> {
+            throw new IllegalStateException("user-service down");
+        });
+
+        assertThat(students).extracting(Student::getId).containsExactly(2L, 1L);
+        assertThat(meterRegistry.get(StudentSummaryCache.STALE_AGE).summary().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(StudentSummaryCache.STALE_AGE).summary().max()).isEqualTo(1800);
+
+        assertThatThrownBy(() -> cache.getAll(List.of(1L, 3L), ids -> {
+            throw new IllegalStateException("user-service down");
+        })).hasMessage("user-service down");
+    }
+
+    @Test
+    void shouldGoStraightToTheLoaderWhenDisabled() {
+        cache = new StudentSummaryCache(new StudentSummaryCacheProperties(), meterRegistry, now::get);
+
+        cache.getAll(List.of(1L), this::load);
+        cache.getAll(List.of(1L), this::load);
+
+        assertThat(calls).hasSize(2);
+    }
+
+    private List<Student> load(Collection<Long> ids) {
+        calls.add(List.copyOf(ids));
+        return ids.stream().map(id -> {
+            Student student = new Student();
+            student.setId(id);
+            student.setName("Student " + id);
+            return student;
+        }).collect(Collectors.toList());
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get(StudentSummaryCache.LOOKUPS).tag("result", result).counter().count();
+    }
+}
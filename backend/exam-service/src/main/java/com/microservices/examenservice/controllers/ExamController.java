@@ -20,7 +20,6 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.microservices.commonexam.models.entity.Exam;
-import com.microservices.commonexam.models.entity.Question;
 import com.microservices.commonservice.controller.CommonController;
 import com.microservices.examenservice.services.ExamService;
 
@@ -62,19 +61,18 @@ public class ExamController extends CommonController<Exam, ExamService> {
             return this.validate(bindingResult);
         }
 
-        Exam examBD = examService.findById(id);
-        examBD.setName(exam.getName());
+        Exam updated = examService.modify(id, examBD -> {
+            examBD.setName(exam.getName());
 
-        List<Question> listOfDeletedQuestions = new ArrayList<>();
+            new ArrayList<>(examBD.getQuestions())
+                    .stream()
+                    .filter(questionDB -> !exam.getQuestions().contains(questionDB))
+                    .forEach(examBD::removeQuestion);
 
-        examBD.getQuestions()
-                .stream()
-                .filter(questionDB -> !exam.getQuestions().contains(questionDB))
-                .forEach(examBD::removeQuestion);
+            examBD.setQuestions(exam.getQuestions());
+        });
 
-        examBD.setQuestions(exam.getQuestions());
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(examService.update(examBD));
+        return ResponseEntity.status(HttpStatus.CREATED).body(updated);
     }
 
     @GetMapping("/filter/{text}")
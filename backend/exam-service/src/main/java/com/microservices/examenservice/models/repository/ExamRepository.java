@@ -5,13 +5,12 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.data.repository.PagingAndSortingRepository;
 
 import com.microservices.commonexam.models.entity.Exam;
+import com.microservices.commonservice.repository.CommonRepository;
 
 
-public interface ExamRepository extends CrudRepository<Exam, Long>, PagingAndSortingRepository<Exam, Long> {
+public interface ExamRepository extends CommonRepository<Exam> {
 
     @Query("SELECT e FROM Exam e where e.name like %?1%")
     List<Exam> findByName(String name);
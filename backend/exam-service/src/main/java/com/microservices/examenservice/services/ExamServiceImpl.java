@@ -1,7 +1,12 @@
 package com.microservices.examenservice.services;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 
+import javax.persistence.LockModeType;
+
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -20,6 +25,43 @@ public class ExamServiceImpl extends CommonServiceImpl<Exam, ExamRepository> imp
     @Autowired
     private SubjectRepository subjectRepository;
 
+    @Override
+    @Transactional
+    public Exam update(Exam exam) {
+        return bumpVersionIfOnlyQuestionsChanged(super.update(exam));
+    }
+
+    @Override
+    @Transactional
+    public Exam modify(Long id, Consumer<Exam> changes) {
+        return bumpVersionIfOnlyQuestionsChanged(super.modify(id, changes));
+    }
+
+    /**
+     * Batch updates flush each exam on its own, so the dirty check only sees that exam's
+     * rows; {@link #updateAll(List)} is still one transaction.
+     */
+    @Override
+    protected Exam merged(Exam exam) {
+        return bumpVersionIfOnlyQuestionsChanged(exam);
+    }
+
+    /**
+     * Questions are part of the exam's representation but live in their own rows, so an
+     * edit of the questions alone would leave the exam's version, and with it the ETags
+     * and 304s, as they were. Flushes the edit, and increments the version when something
+     * was written but not the exam row itself.
+     */
+    private Exam bumpVersionIfOnlyQuestionsChanged(Exam exam) {
+        Long version = exam.getVersion();
+        boolean dirty = entityManager.unwrap(Session.class).isDirty();
+        entityManager.flush();
+        if (dirty && Objects.equals(version, exam.getVersion())) {
+            entityManager.lock(exam, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        }
+        return exam;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Exam> findByName(String name) {
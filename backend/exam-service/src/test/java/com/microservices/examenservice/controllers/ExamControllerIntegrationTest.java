@@ -18,6 +18,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -26,6 +27,8 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -72,6 +75,36 @@ public class ExamControllerIntegrationTest {
         assertThat(response.getBody()).contains(exam.getId());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldChangeTheETagWhenABatchUpdateOnlyChangesQuestions() {
+        Exam exam = new Exam();
+        exam.setName("Math Exam");
+        Question question = new Question();
+        question.setText("What is 2+2?");
+        exam.setQuestions(Arrays.asList(question));
+        Exam saved = examRepository.save(exam);
+
+        ResponseEntity<Map> before = restTemplate.getForEntity(baseUrl + "/" + saved.getId(), Map.class);
+        String eTag = before.getHeaders().getETag();
+        assertThat(eTag).isNotNull();
+
+        Map<String, Object> edited = before.getBody();
+        ((List<Map<String, Object>>) edited.get("questions")).get(0).put("text", "What is 3+3?");
+        ResponseEntity<String> updated = restTemplate.exchange(baseUrl + "/batch", HttpMethod.PUT,
+                new HttpEntity<>(List.of(edited)), String.class);
+        assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.setIfNoneMatch(eTag);
+        ResponseEntity<Map> after = restTemplate.exchange(baseUrl + "/" + saved.getId(), HttpMethod.GET,
+                new HttpEntity<>(conditional), Map.class);
+        assertThat(after.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(after.getHeaders().getETag()).isNotEqualTo(eTag);
+        assertThat(((List<Map<String, Object>>) after.getBody().get("questions")).get(0).get("text"))
+                .isEqualTo("What is 3+3?");
+    }
+
     @Test
     void shouldGetExamsPage() {
         // Préparer les données
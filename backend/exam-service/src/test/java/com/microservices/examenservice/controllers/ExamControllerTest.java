@@ -4,6 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microservices.commonexam.models.entity.Exam;
 import com.microservices.commonexam.models.entity.Question;
 import com.microservices.commonexam.models.entity.Subject;
+import com.microservices.commonservice.exceptions.InvalidBatchException;
+import com.microservices.commonservice.exceptions.InvalidFieldsException;
+import com.microservices.commonservice.exceptions.PreconditionRequiredException;
+import com.microservices.commonservice.exceptions.VersionConflictException;
+import com.microservices.commonservice.repository.VersionSummary;
 import com.microservices.examenservice.services.ExamService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,12 +20,20 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -59,6 +72,216 @@ public class ExamControllerTest {
         sampleSubject.setName("Mathematics");
     }
 
+    @Test
+    public void testStream_WritesOneExamPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Exam> consumer = invocation.getArgument(0);
+            consumer.accept(sampleExam);
+            return null;
+        }).when(examService).streamAll(any());
+
+        MvcResult result = mockMvc.perform(get("/exams/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("Math Exam", objectMapper.readTree(body.trim()).get("name").asText());
+        assertEquals('\n', body.charAt(body.length() - 1));
+    }
+
+    @Test
+    public void testSaveBatch_Success() throws Exception {
+        Exam physics = new Exam();
+        physics.setName("Physics Exam");
+        when(examService.saveAll(anyList())).thenReturn(Arrays.asList(sampleExam, physics));
+
+        mockMvc.perform(post("/exams/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Arrays.asList(sampleExam, physics))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].name").value("Physics Exam"));
+    }
+
+    @Test
+    public void testSaveBatch_ValidationErrorNamesTheElement() throws Exception {
+        Exam invalidExam = new Exam();
+
+        mockMvc.perform(post("/exams/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Arrays.asList(sampleExam, invalidExam))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['[1].name']").exists());
+
+        verify(examService, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void testUpdateBatch_ValidationErrorNamesTheElement() throws Exception {
+        Exam invalidExam = new Exam();
+        invalidExam.setId(2L);
+
+        mockMvc.perform(put("/exams/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Arrays.asList(sampleExam, invalidExam))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['[1].name']").exists());
+
+        verify(examService, never()).updateAll(anyList());
+    }
+
+    @Test
+    public void testUpdateBatch_MissingOrUnknownIdIsBadRequest() throws Exception {
+        Exam newExam = new Exam();
+        newExam.setName("Physics Exam");
+        when(examService.updateAll(anyList()))
+                .thenThrow(new InvalidBatchException(Map.of("[1].id", " El campo id es obligatorio para actualizar")));
+
+        mockMvc.perform(put("/exams/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Arrays.asList(sampleExam, newExam))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['[1].id']").exists());
+    }
+
+    @Test
+    public void testDeleteBatch_Success() throws Exception {
+        mockMvc.perform(delete("/exams/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1,2,3]"))
+                .andExpect(status().isOk());
+
+        verify(examService).deleteAllById(Arrays.asList(1L, 2L, 3L));
+    }
+
+    @Test
+    public void testShow_NotModifiedWhenVersionMatches() throws Exception {
+        when(examService.findVersionById(1L)).thenReturn(Optional.of(2L));
+
+        mockMvc.perform(get("/exams/1").header("If-None-Match", "\"1-2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"1-2\""));
+
+        verify(examService, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testShow_ReloadsWhenVersionChanged() throws Exception {
+        sampleExam.setVersion(3L);
+        when(examService.findVersionById(1L)).thenReturn(Optional.of(3L));
+        when(examService.findById(1L)).thenReturn(sampleExam);
+
+        mockMvc.perform(get("/exams/1").header("If-None-Match", "\"1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(jsonPath("$.name").value("Math Exam"));
+    }
+
+    @Test
+    public void testGetAll_NotModifiedWhenSummaryMatches() throws Exception {
+        when(examService.findVersionSummary()).thenReturn(new VersionSummary(2L, 7L, 5L));
+
+        mockMvc.perform(get("/exams").header("If-None-Match", "\"2-7-5\""))
+                .andExpect(status().isNotModified());
+
+        verify(examService, never()).findAll();
+    }
+
+    @Test
+    public void testPatch_WithIfMatchReturnsNewETag() throws Exception {
+        when(examService.patch(eq(1L), eq(2L), any())).thenReturn(3L);
+
+        mockMvc.perform(patch("/exams/1")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "\"1-2\"")
+                        .content("{\"name\":\"Algebra\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1-3\""));
+
+        verify(examService).patch(1L, 2L, Collections.singletonMap("name", "Algebra"));
+    }
+
+    @Test
+    public void testPatch_WeakIfMatchIsPreconditionFailed() throws Exception {
+        mockMvc.perform(patch("/exams/1")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "W/\"1-2\"")
+                        .content("{\"name\":\"Algebra\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(examService, never()).patch(any(), any(), any());
+    }
+
+    @Test
+    public void testPatch_StaleIfMatchIsPreconditionFailed() throws Exception {
+        when(examService.patch(eq(1L), eq(2L), any())).thenThrow(new VersionConflictException(1L, 2L));
+
+        mockMvc.perform(patch("/exams/1")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "\"1-2\"")
+                        .content("{\"name\":\"Algebra\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testPatch_StaleBodyVersionIsConflict() throws Exception {
+        when(examService.patch(eq(1L), eq(null), any())).thenThrow(new VersionConflictException(1L, 2L));
+
+        mockMvc.perform(patch("/exams/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Algebra\",\"version\":2}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void testPatch_WithoutVersionIsPreconditionRequired() throws Exception {
+        when(examService.patch(eq(1L), eq(null), any())).thenThrow(new PreconditionRequiredException());
+
+        mockMvc.perform(patch("/exams/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"name\":\"Algebra\"}"))
+                .andExpect(status().isPreconditionRequired());
+    }
+
+    @Test
+    public void testPatch_IfMatchOfAnotherExamIsPreconditionFailed() throws Exception {
+        mockMvc.perform(patch("/exams/1")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "\"7-2\"")
+                        .content("{\"name\":\"Algebra\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(examService, never()).patch(anyLong(), any(), any());
+    }
+
+    @Test
+    public void testGetAll_WithFieldsReturnsProjection() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("name", "Math Exam");
+        when(examService.findAllFields(Arrays.asList("id", "name"))).thenReturn(Collections.singletonList(row));
+
+        mockMvc.perform(get("/exams").param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Math Exam"))
+                .andExpect(jsonPath("$[0].questions").doesNotExist());
+
+        verify(examService, never()).findAll();
+    }
+
+    @Test
+    public void testIndex_WithUnknownFieldIsBadRequest() throws Exception {
+        when(examService.findAllFieldsPage(anyList(), any()))
+                .thenThrow(new InvalidFieldsException(Collections.singletonList("secret")));
+
+        mockMvc.perform(get("/exams/page/0/10").param("fields", "secret"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetExamsAnsweredByQuestionsIds_Success() throws Exception {
         List<Long> questionIds = Arrays.asList(1L, 2L);
@@ -130,8 +353,10 @@ public class ExamControllerTest {
         mockExam.setId(1L);
         mockExam.setName("Math Exam");
         mockExam.setQuestions(Collections.emptyList());
-        when(examService.findById(1L)).thenReturn(mockExam);
-        when(examService.update(any(Exam.class))).thenReturn(updatedExam);
+        when(examService.modify(eq(1L), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<Exam>>getArgument(1).accept(mockExam);
+            return mockExam;
+        });
 
         mockMvc.perform(put("/exams/1/exam")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -140,8 +365,8 @@ public class ExamControllerTest {
                 .andExpect(jsonPath("$.name").value("Updated Math Exam"))
                 .andExpect(jsonPath("$.questions[0].text").value("What is 2 + 2?"));
 
-        verify(examService, times(1)).findById(1L);
-        verify(examService, times(1)).update(any(Exam.class));
+        verify(examService, never()).findById(1L);
+        verify(examService, times(1)).modify(eq(1L), any());
     }
 
     @Test
@@ -172,7 +397,7 @@ public class ExamControllerTest {
         }
 
         verify(examService, never()).findById(anyLong());
-        verify(examService, never()).update(any(Exam.class));
+        verify(examService, never()).modify(anyLong(), any());
     }
 
     @Test
@@ -0,0 +1,112 @@
+package com.microservices.examenservice.services;
+
+import com.microservices.commonexam.models.entity.Exam;
+import com.microservices.commonexam.models.entity.Question;
+import com.microservices.commonservice.cache.EntityCacheAutoConfiguration;
+import com.microservices.examenservice.ExamServiceApplication;
+import com.microservices.examenservice.models.repository.ExamRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = ExamServiceApplication.class, properties = {
+        "common.cache.enabled=true",
+        "common.cache.entities.exam.ttl=10m"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+public class ExamServiceCacheIntegrationTest {
+
+    @Autowired
+    private ExamService examService;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    @Qualifier(EntityCacheAutoConfiguration.ENTITY_CACHE_MANAGER)
+    private CacheManager entityCacheManager;
+
+    @AfterEach
+    void tearDown() {
+        examRepository.deleteAll();
+        entityCacheManager.getCache("exam").clear();
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromCache() {
+        Exam saved = examService.save(newExam("Math Exam"));
+
+        Exam first = examService.findById(saved.getId());
+        Exam second = examService.findById(saved.getId());
+
+        assertThat(second).isSameAs(first);
+        assertThat(nativeCache().stats().hitCount()).isEqualTo(1);
+        // loaded and detached inside the cache: lazy collections must already be usable
+        assertThat(second.getQuestions()).hasSize(1);
+    }
+
+    @Test
+    void shouldInvalidateOnUpdateAndDelete() {
+        Exam saved = examService.save(newExam("Math Exam"));
+        examService.findById(saved.getId());
+
+        examService.modify(saved.getId(), exam -> exam.setName("Algebra Exam"));
+        assertThat(examService.findById(saved.getId()).getName()).isEqualTo("Algebra Exam");
+
+        examService.deleteById(saved.getId());
+        assertThat(nativeCache().getIfPresent(saved.getId())).isNull();
+    }
+
+    @Test
+    void shouldNeverChangeTheCachedInstanceWhileEditing() {
+        Exam saved = examService.save(newExam("Math Exam"));
+        Exam cached = examService.findById(saved.getId());
+
+        assertThatThrownBy(() -> examService.modify(saved.getId(), exam -> {
+            exam.setName("Half-applied Exam");
+            exam.setQuestions(List.of());
+            throw new IllegalStateException("edit failed");
+        })).hasMessage("edit failed");
+        assertThat(cached.getName()).isEqualTo("Math Exam");
+        assertThat(cached.getQuestions()).hasSize(1);
+        assertThat(examService.findById(saved.getId())).isSameAs(cached);
+
+        examService.modify(saved.getId(), exam -> {
+            exam.setName("Algebra Exam");
+            exam.setQuestions(List.of());
+        });
+        // readers still holding the old copy keep seeing it whole
+        assertThat(cached.getName()).isEqualTo("Math Exam");
+        assertThat(cached.getQuestions()).hasSize(1);
+        Exam reloaded = examService.findById(saved.getId());
+        assertThat(reloaded).isNotSameAs(cached);
+        assertThat(reloaded.getName()).isEqualTo("Algebra Exam");
+        assertThat(reloaded.getQuestions()).isEmpty();
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache() {
+        return ((CaffeineCache) entityCacheManager.getCache("exam")).getNativeCache();
+    }
+
+    private Exam newExam(String name) {
+        Exam exam = new Exam();
+        exam.setName(name);
+        Question question = new Question();
+        question.setText("What is 2+2?");
+        exam.setQuestions(Arrays.asList(question));
+        return exam;
+    }
+}
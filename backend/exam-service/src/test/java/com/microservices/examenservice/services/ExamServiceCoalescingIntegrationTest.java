@@ -0,0 +1,108 @@
+package com.microservices.examenservice.services;
+
+import com.microservices.commonexam.models.entity.Exam;
+import com.microservices.commonexam.models.entity.Question;
+import com.microservices.commonservice.cache.InFlightLoads;
+import com.microservices.examenservice.ExamServiceApplication;
+import com.microservices.examenservice.models.repository.ExamRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(classes = ExamServiceApplication.class, properties = {
+        "common.cache.enabled=false",
+        "common.coalescing.enabled=true"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+public class ExamServiceCoalescingIntegrationTest {
+
+    private static final int CALLERS = 5;
+
+    @Autowired
+    private ExamService examService;
+
+    @SpyBean
+    private ExamRepository examRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        examRepository.deleteAll();
+    }
+
+    @Test
+    void shouldShareOneLoadBetweenConcurrentReadsOfTheSameExam() throws Exception {
+        Exam saved = examService.save(newExam("Math Exam"));
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.ofNullable(entityManager.find(Exam.class, invocation.getArgument(0)));
+        }).when(examRepository).findById(any());
+
+        List<Future<Exam>> reads = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            reads.add(callers.submit(() -> examService.findById(saved.getId())));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loads("joined") < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        Exam first = reads.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<Exam> read : reads) {
+            assertThat(read.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        // detached after being initialized: waiters never touch the loader's session
+        assertThat(first.getQuestions()).hasSize(1);
+        verify(examRepository, times(1)).findById(saved.getId());
+        assertThat(loads("leader")).isEqualTo(1);
+        assertThat(loads("joined")).isEqualTo(CALLERS - 1);
+    }
+
+    private double loads(String result) {
+        Counter counter = meterRegistry.find(InFlightLoads.LOADS).tag("name", "exam").tag("result", result).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private Exam newExam(String name) {
+        Exam exam = new Exam();
+        exam.setName(name);
+        Question question = new Question();
+        question.setText("What is 2+2?");
+        exam.setQuestions(Arrays.asList(question));
+        return exam;
+    }
+}
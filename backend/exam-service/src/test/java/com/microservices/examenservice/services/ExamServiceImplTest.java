@@ -6,6 +6,8 @@ import com.microservices.commonexam.models.entity.Subject;
 import com.microservices.examenservice.models.repository.ExamRepository;
 import com.microservices.examenservice.models.repository.SubjectRepository;
 import com.microservices.commonservice.exceptions.ResourceNotFoundException; // Import corrigé
+import com.microservices.commonservice.pagination.CursorPage;
+import com.microservices.commonservice.pagination.Cursors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +17,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 
 import java.lang.reflect.Field;
 import java.util.Arrays;
@@ -182,4 +185,26 @@ public class ExamServiceImplTest {
 
         verify(examRepository, times(1)).save(sampleExam);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindAllAfter_ReturnsNextCursor() {
+        when(examRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(sampleExam), PageRequest.of(0, 1), true));
+
+        CursorPage<Exam> result = examService.findAllAfter(0L, 1);
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.isHasNext());
+        assertEquals(1L, Cursors.decode(result.getNextCursor()));
+    }
+
+    @Test
+    public void testFindAllAfter_LastPage() {
+        when(examRepository.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList(), PageRequest.of(0, 10), false));
+
+        CursorPage<Exam> result = examService.findAllAfter(1L, 10);
+        assertTrue(result.getContent().isEmpty());
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+    }
+}
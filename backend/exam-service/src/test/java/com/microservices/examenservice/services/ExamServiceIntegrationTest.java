@@ -3,10 +3,20 @@ package com.microservices.examenservice.services;
 import com.microservices.commonexam.models.entity.Exam;
 import com.microservices.commonexam.models.entity.Question;
 import com.microservices.commonexam.models.entity.Subject;
+import com.microservices.commonservice.exceptions.InvalidBatchException;
+import com.microservices.commonservice.exceptions.InvalidFieldsException;
+import com.microservices.commonservice.exceptions.PreconditionRequiredException;
+import com.microservices.commonservice.exceptions.ResourceNotFoundException;
+import com.microservices.commonservice.exceptions.VersionConflictException;
+import com.microservices.commonservice.metrics.CommonServiceMetricsInterceptor;
+import com.microservices.commonservice.repository.VersionSummary;
 import com.microservices.examenservice.ExamServiceApplication;
 import com.microservices.examenservice.config.TestContainersConfig;
 import com.microservices.examenservice.models.repository.ExamRepository;
 import com.microservices.examenservice.models.repository.SubjectRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,10 +33,15 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolationException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest(classes = ExamServiceApplication.class)
 @ActiveProfiles("test")
@@ -44,6 +59,9 @@ public class ExamServiceIntegrationTest {
     @Autowired
     private SubjectRepository subjectRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -77,6 +95,218 @@ public class ExamServiceIntegrationTest {
         assertThat(foundExam.getName()).isEqualTo("Math Exam");
     }
 
+    @Test
+    void shouldStreamAllExams() {
+        Exam math = new Exam();
+        math.setName("Math Exam");
+        Question question = new Question();
+        question.setText("What is 2+2?");
+        math.addQuestion(question);
+        Exam physics = new Exam();
+        physics.setName("Physics Exam");
+        examRepository.saveAll(Arrays.asList(math, physics));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Exam> streamed = new ArrayList<>();
+        examService.streamAll(exam -> {
+            assertThat(entityManager.contains(exam)).isTrue();
+            // as the JSON writer does: the lazy questions load while the exam is still managed
+            exam.getQuestions().size();
+            streamed.add(exam);
+        });
+
+        assertThat(streamed).extracting(Exam::getName).containsExactlyInAnyOrder("Math Exam", "Physics Exam");
+        assertThat(streamed).allSatisfy(exam -> {
+            assertThat(entityManager.contains(exam)).isFalse();
+            assertThat(Hibernate.isInitialized(exam.getQuestions())).isTrue();
+        });
+        assertThat(streamed).filteredOn(exam -> exam.getName().equals("Math Exam"))
+                .flatExtracting(Exam::getQuestions).extracting(Question::getText)
+                .containsExactly("What is 2+2?");
+    }
+
+    @Test
+    void shouldSaveUpdateAndDeleteExamsInBatches() {
+        List<Exam> exams = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Exam exam = new Exam();
+            exam.setName("Exam " + i);
+            exams.add(exam);
+        }
+
+        List<Exam> saved = examService.saveAll(exams);
+
+        assertThat(saved).hasSize(120).allSatisfy(exam -> assertThat(exam.getId()).isNotNull());
+        assertThat(examRepository.count()).isEqualTo(120);
+
+        saved.forEach(exam -> exam.setName(exam.getName() + " (v2)"));
+        examService.updateAll(saved);
+        entityManager.clear();
+
+        assertThat(examService.findById(saved.get(0).getId()).getName()).isEqualTo("Exam 0 (v2)");
+
+        List<Long> ids = new ArrayList<>();
+        saved.subList(0, 100).forEach(exam -> ids.add(exam.getId()));
+        examService.deleteAllById(ids);
+
+        assertThat(examRepository.count()).isEqualTo(20);
+    }
+
+    @Test
+    void shouldRejectBatchUpdatesOfExamsThatDoNotExist() {
+        Exam math = new Exam();
+        math.setName("Math Exam");
+        Exam saved = examService.save(math);
+        entityManager.flush();
+        entityManager.clear();
+
+        Exam renamed = new Exam();
+        renamed.setId(saved.getId());
+        renamed.setName("Algebra Exam");
+        Exam withoutId = new Exam();
+        withoutId.setName("Physics Exam");
+        Exam unknown = new Exam();
+        unknown.setId(saved.getId() + 1000);
+        unknown.setName("Chemistry Exam");
+
+        assertThatThrownBy(() -> examService.updateAll(Arrays.asList(renamed, withoutId, unknown)))
+                .isInstanceOfSatisfying(InvalidBatchException.class, e ->
+                        assertThat(e.getErrors()).containsOnlyKeys("[1].id", "[2].id"));
+        entityManager.clear();
+
+        assertThat(examRepository.count()).isEqualTo(1);
+        assertThat(examRepository.findById(saved.getId()).orElseThrow().getName()).isEqualTo("Math Exam");
+    }
+
+    @Test
+    void shouldBumpVersionAndSummaryOnUpdate() {
+        Exam exam = new Exam();
+        exam.setName("Math Exam");
+        Exam saved = examService.save(exam);
+        entityManager.flush();
+        Long versionBefore = saved.getVersion();
+        VersionSummary before = examService.findVersionSummary();
+
+        Exam changes = new Exam();
+        changes.setId(saved.getId());
+        changes.setName("Algebra Exam");
+        examService.update(changes);
+        entityManager.flush();
+
+        assertThat(examService.findVersionById(saved.getId())).contains(versionBefore + 1);
+        assertThat(examService.findVersionSummary().getVersionSum()).isEqualTo(before.getVersionSum() + 1);
+    }
+
+    @Test
+    void shouldBumpVersionWhenOnlyTheQuestionsChange() {
+        Exam exam = new Exam();
+        exam.setName("Math Exam");
+        Question question = new Question();
+        question.setText("What is 2+2?");
+        exam.setQuestions(Arrays.asList(question));
+        Exam saved = examService.save(exam);
+        entityManager.flush();
+        Long versionBefore = saved.getVersion();
+
+        examService.modify(saved.getId(), edited -> edited.getQuestions().get(0).setText("What is 3+3?"));
+        assertThat(examService.findVersionById(saved.getId())).contains(versionBefore + 1);
+
+        examService.modify(saved.getId(), edited -> edited.setName("Algebra Exam"));
+        assertThat(examService.findVersionById(saved.getId())).contains(versionBefore + 2);
+
+        examService.modify(saved.getId(), edited -> edited.setName("Algebra Exam"));
+        assertThat(examService.findVersionById(saved.getId())).contains(versionBefore + 2);
+    }
+
+    @Test
+    void shouldPatchOnlyTheGivenFieldsAndBumpVersion() {
+        Exam exam = new Exam();
+        exam.setName("Math Exam");
+        Exam saved = examService.save(exam);
+        entityManager.flush();
+        Long version = saved.getVersion();
+        Date createdAt = saved.getCreatedAt();
+
+        Long patched = examService.patch(saved.getId(), version, Map.of("name", "Algebra Exam"));
+        entityManager.clear();
+
+        Exam reloaded = examRepository.findById(saved.getId()).orElseThrow();
+        assertThat(patched).isEqualTo(version + 1);
+        assertThat(reloaded.getVersion()).isEqualTo(version + 1);
+        assertThat(reloaded.getName()).isEqualTo("Algebra Exam");
+        assertThat(reloaded.getCreatedAt()).isNotNull();
+        assertThat(reloaded.getCreatedAt().getTime()).isEqualTo(createdAt.getTime());
+    }
+
+    @Test
+    void shouldRejectPatchAgainstStaleOrMissingVersion() {
+        Exam exam = new Exam();
+        exam.setName("Math Exam");
+        Exam saved = examService.save(exam);
+        entityManager.flush();
+        Long version = saved.getVersion();
+        examService.patch(saved.getId(), version, Map.of("name", "Algebra Exam"));
+
+        assertThatThrownBy(() -> examService.patch(saved.getId(), version, Map.of("name", "Geometry Exam")))
+                .isInstanceOf(VersionConflictException.class);
+        assertThatThrownBy(() -> examService.patch(saved.getId(), null, Map.of("name", "Geometry Exam")))
+                .isInstanceOf(PreconditionRequiredException.class);
+        assertThat(examService.patch(saved.getId(), null, Map.of("name", "Geometry Exam", "version", version + 1)))
+                .isEqualTo(version + 2);
+    }
+
+    @Test
+    void shouldValidatePatchedValuesAndFields() {
+        Exam exam = new Exam();
+        exam.setName("Math Exam");
+        Exam saved = examService.save(exam);
+        entityManager.flush();
+        Long version = saved.getVersion();
+
+        assertThatThrownBy(() -> examService.patch(saved.getId(), version, Map.of("name", "")))
+                .isInstanceOf(ConstraintViolationException.class);
+        assertThatThrownBy(() -> examService.patch(saved.getId(), version, Map.of("questions", List.of())))
+                .isInstanceOf(InvalidFieldsException.class);
+        assertThatThrownBy(() -> examService.patch(-1L, 0L, Map.of("name", "Algebra Exam")))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void shouldSelectOnlyRequestedFields() {
+        Exam exam = new Exam();
+        exam.setName("Math Exam");
+        examRepository.save(exam);
+
+        List<Map<String, Object>> rows = examService.findAllFields(Arrays.asList("name", "id"));
+        Page<Map<String, Object>> page = examService.findAllFieldsPage(Arrays.asList("name"), PageRequest.of(0, 10));
+
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0)).containsOnlyKeys("name", "id").containsEntry("name", "Math Exam");
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getContent().get(0)).containsOnlyKeys("name");
+    }
+
+    @Test
+    void shouldRejectUnknownAndAssociationFields() {
+        assertThatThrownBy(() -> examService.findAllFields(Arrays.asList("name", "questions", "secret")))
+                .isInstanceOf(InvalidFieldsException.class)
+                .hasMessageContaining("questions")
+                .hasMessageContaining("secret");
+    }
+
+    @Test
+    void shouldTimeServiceCallsPerEntityAndMethod() {
+        examService.findAll();
+
+        Timer timer = meterRegistry.find(CommonServiceMetricsInterceptor.METRIC_NAME)
+                .tags("entity", "Exam", "method", "findAll", "exception", "none")
+                .timer();
+
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+    }
+
     @Test
     void shouldFindExamsByName() {
         Exam exam = new Exam();
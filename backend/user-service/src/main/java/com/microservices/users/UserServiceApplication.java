@@ -6,12 +6,14 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableFeignClients
 @EnableEurekaClient
 @SpringBootApplication
+@EnableScheduling
 @EnableJpaRepositories(basePackages = "com.microservices.users.models.repository")
-@EntityScan(basePackages = "com.microservices.commonstudent.models.entity")
+@EntityScan(basePackages = {"com.microservices.commonstudent.models.entity", "com.microservices.users.models.entity"})
 public class UserServiceApplication {
 
 	public static void main(String[] args) {
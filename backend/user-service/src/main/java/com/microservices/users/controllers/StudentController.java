@@ -1,20 +1,31 @@
 package com.microservices.users.controllers;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
 import javax.validation.Valid;
 
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -22,9 +33,24 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.commonservice.controller.CommonController;
+import com.microservices.commonservice.controller.MergePatches;
+import com.microservices.commonservice.pagination.CursorPage;
+import com.microservices.commonservice.pagination.Cursors;
+import com.microservices.commonservice.util.ETags;
 import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.users.exports.StudentCsvWriter;
+import com.microservices.users.imports.StudentImportProgress;
+import com.microservices.users.imports.StudentImportService;
+import com.microservices.users.imports.StudentRows;
+import com.microservices.users.search.StudentSuggestion;
 import com.microservices.users.services.StudentService;
 
 @RestController
@@ -32,10 +58,27 @@ import com.microservices.users.services.StudentService;
 @RequestMapping("/students")
 public class StudentController {
 
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final StudentService studentService;
 
-    public StudentController(StudentService studentService) {
+    private final StudentImportService importService;
+
+    private final ObjectMapper objectMapper;
+
+    public StudentController(StudentService studentService, StudentImportService importService,
+                             ObjectMapper objectMapper) {
         this.studentService = studentService;
+        this.importService = importService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The image metadata is only ever set from the uploaded file.
+     */
+    @InitBinder
+    public void initBinder(WebDataBinder binder) {
+        binder.setDisallowedFields("imageSize", "imageContentType", "imageDigest");
     }
 
     @GetMapping("/students-by-course")
@@ -43,12 +86,68 @@ public class StudentController {
         return ResponseEntity.ok(studentService.findAllById(ids));
     }
 
+    /**
+     * Same lookup for id sets too large for a query string: the body is a JSON array of
+     * ids and the students come back as a JSON array in that order, written as the
+     * chunked lookups complete.
+     */
+    @PostMapping(value = "/students-by-course", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> findStudentsByCourse(@RequestBody List<Long> ids) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                studentService.findAllByIdInOrder(ids, student -> writeStudent(generator, student));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static void writeStudent(JsonGenerator generator, Student student) {
+        try {
+            generator.writeObject(student);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping("/{id:[0-9]+}")
+    public ResponseEntity<?> show(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = studentService.findVersionById(id);
+            if (version.isPresent() && webRequest.checkNotModified(ETags.of(id, version.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+        }
+        Student student = studentService.findById(id);
+        String eTag = ETags.forEntity(student);
+        return eTag != null ? ResponseEntity.ok().eTag(eTag).body(student) : ResponseEntity.ok(student);
+    }
+
     @GetMapping("/page/{page}/{size}")
     public ResponseEntity<Page<Student>> index(@PathVariable Integer page, @PathVariable Integer size) {
         Pageable pageable = PageRequest.of(page, size);
         return ResponseEntity.ok(studentService.findAllPage(pageable));
     }
 
+    @GetMapping(value = "/page/{page}/{size}", params = "fields")
+    public ResponseEntity<Page<Map<String, Object>>> indexFields(@PathVariable Integer page, @PathVariable Integer size,
+                                                                 @RequestParam List<String> fields) {
+        Pageable pageable = PageRequest.of(page, size);
+        return ResponseEntity.ok(studentService.findAllFieldsPage(fields, pageable));
+    }
+
+    @GetMapping("/page/slice/{page}/{size}")
+    public ResponseEntity<Slice<Student>> slice(@PathVariable Integer page, @PathVariable Integer size) {
+        Pageable pageable = PageRequest.of(page, size);
+        return ResponseEntity.ok(studentService.findAllSlice(pageable));
+    }
+
+    @GetMapping("/page/after/{cursor}/{size}")
+    public ResponseEntity<CursorPage<Student>> after(@PathVariable String cursor, @PathVariable Integer size) {
+        return ResponseEntity.ok(studentService.findAllAfter(Cursors.decode(cursor), size));
+    }
+
     @GetMapping("/page/{page}/{size}/{text}")
     public ResponseEntity<Page<Student>> indexPageWithText(@PathVariable Integer page, @PathVariable Integer size,
                                                            @PathVariable String text) {
@@ -62,11 +161,103 @@ public class StudentController {
         if (bindingResult.hasErrors()) {
             return validate(bindingResult);
         }
-        Student studentBD = studentService.findById(id);
-        studentBD.setName(student.getName());
-        studentBD.setLastName(student.getLastName());
-        studentBD.setEmail(student.getEmail());
-        return ResponseEntity.status(HttpStatus.CREATED).body(studentService.update(studentBD));
+        return ResponseEntity.status(HttpStatus.CREATED).body(studentService.modify(id, studentBD -> {
+            studentBD.setName(student.getName());
+            studentBD.setLastName(student.getLastName());
+            studentBD.setEmail(student.getEmail());
+        }));
+    }
+
+    /**
+     * Same contract as {@link CommonController#patch}: a rename is one {@code UPDATE} of
+     * the name columns instead of a read followed by a full-row write.
+     */
+    @PatchMapping(value = "/{id:[0-9]+}",
+            consumes = {CommonController.APPLICATION_MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patch(@PathVariable Long id, @RequestBody Map<String, Object> patch,
+                                   WebRequest webRequest) {
+        return MergePatches.apply(id, webRequest, ETags::versionOf,
+                expectedVersion -> studentService.patch(id, expectedVersion, patch));
+    }
+
+    /**
+     * Typeahead for the search box: ids and display names only, at most
+     * {@value #MAX_SUGGESTIONS}.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<StudentSuggestion>> suggest(@RequestParam("q") String query,
+                                                           @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(studentService.suggest(query, Math.max(1, Math.min(limit, MAX_SUGGESTIONS))));
+    }
+
+    /**
+     * Bulk creation from a CSV file (header with name, last name and email; comma or
+     * semicolon separated) or one JSON student per line. The answer is NDJSON: an
+     * {@code {"row":n,"errors":{...}}} line per rejected row and a progress line after
+     * every chunk, the last one with {@code "done":true}. A CSV without the required
+     * columns is refused with 400 before anything is imported.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importStudents(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) throws IOException {
+        StudentRows rows = importService.open(body, contentType);
+        StreamingResponseBody response = out -> importService.importRows(rows, event -> {
+            writeLine(out, event);
+            if (event instanceof StudentImportProgress) {
+                flush(out);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(response);
+    }
+
+    /**
+     * Every student, as CSV (the default) or NDJSON, written while a forward-only cursor
+     * walks the table in one read-only transaction. Each student is detached once
+     * written, so memory use does not grow with the table.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format) {
+        StreamingResponseBody body;
+        MediaType contentType;
+        if ("csv".equalsIgnoreCase(format)) {
+            contentType = new MediaType(StudentImportService.TEXT_CSV, StandardCharsets.UTF_8);
+            body = out -> {
+                StudentCsvWriter writer = new StudentCsvWriter(out);
+                writer.writeHeader();
+                studentService.streamAll(writer::write);
+                writer.flush();
+            };
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            contentType = MediaType.APPLICATION_NDJSON;
+            body = out -> studentService.streamAll(student -> writeLine(out, student));
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        ContentDisposition attachment = ContentDisposition.attachment()
+                .filename("students." + format.toLowerCase(Locale.ROOT))
+                .build();
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment.toString())
+                .body(body);
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @GetMapping("/filter/{text}")
@@ -80,10 +271,8 @@ public class StudentController {
         if (bindingResult.hasErrors()) {
             return validate(bindingResult);
         }
-        if (!file.isEmpty()) {
-            student.setImage(file.getBytes());
-        }
-        return ResponseEntity.status(HttpStatus.CREATED).body(studentService.save(student));
+        return ResponseEntity.status(HttpStatus.CREATED).body(
+                studentService.saveWithImage(student, image(file), file.getContentType()));
     }
 
     @PutMapping("/{id}/update-with-image")
@@ -93,26 +282,15 @@ public class StudentController {
         if (bindingResult.hasErrors()) {
             return validate(bindingResult);
         }
-        Student studentBD = studentService.findById(id);
-        studentBD.setName(student.getName());
-        studentBD.setLastName(student.getLastName());
-        studentBD.setEmail(student.getEmail());
-        if (!file.isEmpty()) {
-            studentBD.setImage(file.getBytes());
-        }
-        return ResponseEntity.status(HttpStatus.CREATED).body(studentService.update(studentBD));
+        return ResponseEntity.status(HttpStatus.CREATED).body(studentService.modifyWithImage(id, studentBD -> {
+            studentBD.setName(student.getName());
+            studentBD.setLastName(student.getLastName());
+            studentBD.setEmail(student.getEmail());
+        }, image(file), file.getContentType()));
     }
 
-    @GetMapping("/{id}/uploads/image")
-    public ResponseEntity<?> viewImage(@PathVariable Long id) {
-        Student studentBD = studentService.findById(id);
-        if (studentBD.getImage() == null) {
-            return ResponseEntity.notFound().build();
-        }
-        Resource image = new ByteArrayResource(studentBD.getImage());
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .body(image);
+    private InputStream image(MultipartFile file) throws IOException {
+        return file.isEmpty() ? null : file.getInputStream();
     }
 
     private ResponseEntity<?> validate(BindingResult bindingResult) {
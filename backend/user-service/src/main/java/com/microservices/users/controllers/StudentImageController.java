@@ -0,0 +1,147 @@
+package com.microservices.users.controllers;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.microservices.commonservice.util.ETags;
+import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.users.exceptions.ImageTooLargeException;
+import com.microservices.users.services.StudentService;
+import com.microservices.users.storage.StudentImageProperties;
+import com.microservices.users.storage.StudentImageVariants;
+
+/**
+ * Uploads student images as a plain request body and serves them so that browsers and
+ * proxies can cache them:
+ * <ul>
+ * <li>the ETag is the image digest, and a matching {@code If-None-Match} gets a 304
+ * without the store being read;</li>
+ * <li>{@code ?size=64} (or another configured size) serves a small JPEG variant, for
+ * lists of avatars;</li>
+ * <li>{@code ?v=<imageHashCode>} names one version of the image, which is then cacheable
+ * for a year; without it clients revalidate every time;</li>
+ * <li>{@code Range} requests get 206 partial content (Spring MVC does this for any
+ * {@link Resource} body);</li>
+ * <li>a whole file from the file system store is handed to Tomcat's sendfile, so the
+ * bytes go from the page cache to the socket without passing through the JVM.</li>
+ * </ul>
+ */
+@RestController
+@CrossOrigin(origins = "*", allowCredentials = "false")
+@RequestMapping("/students")
+public class StudentImageController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String IMMUTABLE =
+            CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable";
+
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    private final StudentService studentService;
+
+    private final StudentImageProperties properties;
+
+    private final StudentImageVariants imageVariants;
+
+    public StudentImageController(StudentService studentService, StudentImageProperties properties,
+                                  StudentImageVariants imageVariants) {
+        this.studentService = studentService;
+        this.properties = properties;
+        this.imageVariants = imageVariants;
+    }
+
+    /**
+     * Raw upload: the request body is the image itself and is streamed into the store,
+     * with no multipart parsing and no servlet temp file. A declared length over
+     * {@code students.images.max-size} is refused before reading; an undeclared one is
+     * cut off as soon as it crosses the limit.
+     */
+    @PutMapping(value = "/{id}/uploads/image", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> uploadImage(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        long maxSize = properties.getMaxSize().toBytes();
+        if (request.getContentLengthLong() > maxSize) {
+            throw new ImageTooLargeException(maxSize);
+        }
+        return ResponseEntity.ok(studentService.modifyWithImage(id, student -> { }, request.getInputStream(),
+                request.getContentType()));
+    }
+
+    /**
+     * {@code ?size=} asks for one of the resized variants, which has its own ETag. Until
+     * it has been made the original is sent instead, without the long-lived caching, so
+     * the client picks up the variant later.
+     */
+    @GetMapping("/{id}/uploads/image")
+    public ResponseEntity<?> viewImage(@PathVariable Long id,
+                                       @RequestParam(name = "v", required = false) String version,
+                                       @RequestParam(name = "size", required = false) Integer size,
+                                       WebRequest webRequest, HttpServletRequest request) throws IOException {
+        if (size != null && !imageVariants.isSupported(size)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Student student = studentService.findById(id);
+        if (!student.hasImage()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<Resource> variant = size == null ? Optional.empty() : studentService.findImageVariant(student, size);
+        boolean fallback = size != null && variant.isEmpty();
+        String eTag = variant.isPresent() ? ETags.of(student.getImageDigest(), size) : ETags.of(student.getImageDigest());
+        boolean versioned = String.valueOf(student.getImageHashCode()).equals(version);
+        String cacheControl = versioned && !fallback ? IMMUTABLE : REVALIDATE;
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                    .build();
+        }
+        Optional<Resource> image = variant.isPresent() ? variant : studentService.findImage(student);
+        if (image.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        MediaType contentType = variant.isPresent() ? StudentImageVariants.CONTENT_TYPE
+                : MediaType.parseMediaType(student.getImageContentType());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(eTag)
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .header("X-Content-Type-Options", "nosniff")
+                .contentType(contentType);
+        Resource resource = image.get();
+        if (request.getHeader(HttpHeaders.RANGE) == null && canSendFile(request, resource)) {
+            long length = resource.contentLength();
+            request.setAttribute(SENDFILE_FILENAME, resource.getFile().getAbsolutePath());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return response.contentLength(length).build();
+        }
+        return response.body(resource);
+    }
+
+    private boolean canSendFile(HttpServletRequest request, Resource resource) {
+        return Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && resource.isFile();
+    }
+}
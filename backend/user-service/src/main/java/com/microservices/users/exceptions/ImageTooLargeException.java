@@ -0,0 +1,16 @@
+package com.microservices.users.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.microservices.users.util.ValidationMessages;
+
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class ImageTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ImageTooLargeException(long maxSize) {
+        super(ValidationMessages.IMAGE_TOO_LARGE + maxSize);
+    }
+}
@@ -0,0 +1,18 @@
+package com.microservices.users.exceptions;
+
+import java.util.Collection;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.microservices.users.util.ValidationMessages;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidImportException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidImportException(Collection<String> missingColumns) {
+        super(ValidationMessages.IMPORT_MISSING_COLUMNS + String.join(", ", missingColumns));
+    }
+}
@@ -0,0 +1,98 @@
+package com.microservices.users.exports;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.microservices.commonstudent.models.entity.Student;
+
+/**
+ * Writes students as RFC 4180 CSV, UTF-8, one line per student. The header uses the
+ * column names the import accepts, so an export can be loaded back as it is.
+ */
+public class StudentCsvWriter {
+
+    static final String HEADER = "id,name,last_name,email,created_at";
+
+    private final Writer writer;
+
+    public StudentCsvWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    public void writeHeader() {
+        append(HEADER);
+        newLine();
+    }
+
+    public void write(Student student) {
+        append(student.getId() == null ? "" : student.getId().toString());
+        append(",");
+        append(quote(student.getName()));
+        append(",");
+        append(quote(student.getLastName()));
+        append(",");
+        append(quote(student.getEmail()));
+        append(",");
+        append(student.getCreatedAt() == null ? "" : student.getCreatedAt().toInstant().toString());
+        newLine();
+    }
+
+    /**
+     * Pushes what is buffered to the response without closing it.
+     */
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Quotes only fields that need it: those holding the delimiter, a quote or a line
+     * break. Quotes inside are doubled. A field a spreadsheet would run as a formula is
+     * prefixed with {@code '} and quoted; the import takes the prefix off again.
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (isFormula(value)) {
+            return "\"'" + value.replace("\"", "\"\"") + '"';
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return needsQuotes ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    /**
+     * Whether Excel, LibreOffice or Sheets would evaluate the cell.
+     */
+    public static boolean isFormula(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        char first = value.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+
+    private void newLine() {
+        append("\r\n");
+    }
+
+    private void append(String text) {
+        try {
+            writer.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.microservices.users.imports;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A rejected row: its number in the upload (data rows for CSV, lines for NDJSON, both
+ * from 1) and the messages per field, {@code row} when the row itself is unreadable.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentImportError {
+
+    private final long row;
+
+    private final Map<String, String> errors;
+}
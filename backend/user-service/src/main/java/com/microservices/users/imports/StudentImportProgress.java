@@ -0,0 +1,19 @@
+package com.microservices.users.imports;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StudentImportProgress {
+
+    private final long processed;
+
+    private final long imported;
+
+    private final long failed;
+
+    private final boolean done;
+
+    private final long elapsedMillis;
+}
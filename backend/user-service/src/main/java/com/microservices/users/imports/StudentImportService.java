@@ -0,0 +1,215 @@
+package com.microservices.users.imports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.users.models.repository.StudentRepository;
+import com.microservices.users.services.StudentService;
+import com.microservices.users.util.ValidationMessages;
+
+/**
+ * Bulk creation of students from a CSV or NDJSON upload, read as it arrives. Every row
+ * is checked against the {@link Student} constraints; valid rows are inserted
+ * {@value #CHUNK_SIZE} at a time, after one query for the emails of the chunk that are
+ * already taken, through {@link StudentService#saveAll(List)} (JDBC batches, one
+ * transaction per chunk). A rejected row does not stop the import.
+ */
+@Service
+public class StudentImportService {
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    static final int CHUNK_SIZE = 1_000;
+
+    static final String ROW = "row";
+
+    private static final String EMAIL = "email";
+
+    private final StudentService studentService;
+
+    private final StudentRepository repository;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    public StudentImportService(StudentService studentService, StudentRepository repository, Validator validator,
+                                ObjectMapper objectMapper) {
+        this.studentService = studentService;
+        this.repository = repository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the CSV header straight away, so that a file without the required columns is
+     * refused before any result is written back.
+     */
+    public StudentRows open(InputStream body, MediaType contentType) throws IOException {
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        BufferedReader input = new BufferedReader(new InputStreamReader(body, charset), 64 * 1024);
+        return TEXT_CSV.isCompatibleWith(contentType) ? new StudentRows.Csv(input)
+                : new StudentRows.Ndjson(input, objectMapper);
+    }
+
+    /**
+     * Passes each {@link StudentImportError} to {@code events} as soon as it is known and
+     * a {@link StudentImportProgress} after every chunk; the last one, also returned, has
+     * {@code done} set.
+     */
+    public StudentImportProgress importRows(StudentRows rows, Consumer<Object> events) throws IOException {
+        Counters counters = new Counters(System.nanoTime());
+        Set<String> seenEmails = new HashSet<>();
+        List<StudentRows.Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        try {
+            StudentRows.Row row;
+            while ((row = rows.next()) != null) {
+                counters.processed++;
+                Map<String, String> errors = check(row, seenEmails);
+                if (errors.isEmpty()) {
+                    chunk.add(row);
+                } else {
+                    reject(row.number, errors, counters, events);
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    insert(chunk, counters, events);
+                    events.accept(counters.progress(false));
+                }
+            }
+        } catch (CsvReader.MalformedRecordException e) {
+            counters.processed++;
+            reject(counters.processed, Map.of(ROW, ValidationMessages.IMPORT_MALFORMED_ROW + e.getMessage()),
+                    counters, events);
+        }
+        insert(chunk, counters, events);
+        StudentImportProgress done = counters.progress(true);
+        events.accept(done);
+        return done;
+    }
+
+    /**
+     * Bean Validation first, then emails repeated within the upload; only rows that pass
+     * both reserve their email.
+     */
+    private Map<String, String> check(StudentRows.Row row, Set<String> seenEmails) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        if (row.error != null) {
+            errors.put(ROW, row.error);
+            return errors;
+        }
+        for (ConstraintViolation<Student> violation : validator.validate(row.student)) {
+            String field = violation.getPropertyPath().toString();
+            errors.putIfAbsent(field, "El campo " + field + " " + violation.getMessage());
+        }
+        if (errors.isEmpty() && !seenEmails.add(row.student.getEmail())) {
+            errors.put(EMAIL, ValidationMessages.EMAIL_REPEATED_IN_IMPORT);
+        }
+        return errors;
+    }
+
+    private void insert(List<StudentRows.Row> chunk, Counters counters, Consumer<Object> events) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<String> taken = new HashSet<>(repository.findEmailsByEmailIn(chunk.stream()
+                .map(row -> row.student.getEmail())
+                .collect(Collectors.toList())));
+        List<StudentRows.Row> fresh = new ArrayList<>(chunk.size());
+        for (StudentRows.Row row : chunk) {
+            if (taken.contains(row.student.getEmail())) {
+                reject(row.number, Map.of(EMAIL, ValidationMessages.EMAIL_ALREADY_EXISTS), counters, events);
+            } else {
+                fresh.add(row);
+            }
+        }
+        try {
+            studentService.saveAll(fresh.stream().map(row -> row.student).collect(Collectors.toList()));
+            counters.imported += fresh.size();
+        } catch (RuntimeException e) {
+            if (!isConstraintViolation(e)) {
+                throw e;
+            }
+            insertOneByOne(fresh, counters, events);
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Someone else took one of the emails between the check and the insert: the chunk
+     * was rolled back, so the rows are retried on their own to find the culprit.
+     */
+    private void insertOneByOne(List<StudentRows.Row> rows, Counters counters, Consumer<Object> events) {
+        for (StudentRows.Row row : rows) {
+            row.student.setId(null);
+            row.student.setVersion(null);
+            try {
+                studentService.save(row.student);
+                counters.imported++;
+            } catch (RuntimeException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                reject(row.number, Map.of(EMAIL, ValidationMessages.EMAIL_ALREADY_EXISTS), counters, events);
+            }
+        }
+    }
+
+    private static void reject(long row, Map<String, String> errors, Counters counters, Consumer<Object> events) {
+        counters.failed++;
+        events.accept(new StudentImportError(row, errors));
+    }
+
+    /**
+     * The flush inside {@code saveAll} is not behind a repository, so the Hibernate
+     * exception may arrive untranslated.
+     */
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof org.hibernate.exception.ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Counters {
+
+        private final long start;
+
+        private long processed;
+
+        private long imported;
+
+        private long failed;
+
+        private Counters(long start) {
+            this.start = start;
+        }
+
+        private StudentImportProgress progress(boolean done) {
+            return new StudentImportProgress(processed, imported, failed, done, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
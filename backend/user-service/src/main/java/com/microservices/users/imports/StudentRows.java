@@ -0,0 +1,153 @@
+package com.microservices.users.imports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.users.exceptions.InvalidImportException;
+import com.microservices.users.exports.StudentCsvWriter;
+import com.microservices.users.util.ValidationMessages;
+
+/**
+ * The rows of an upload, parsed one at a time as they are read.
+ */
+public abstract class StudentRows {
+
+    abstract Row next() throws IOException;
+
+    /**
+     * A parsed row: the student, or why the row could not be read.
+     */
+    static final class Row {
+
+        /**
+         * Position among the records after the header, blank ones included, so that it
+         * points at the right place in the file.
+         */
+        final long number;
+
+        final Student student;
+
+        final String error;
+
+        Row(long number, Student student, String error) {
+            this.number = number;
+            this.student = student;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Columns are matched by header name, in any order and case; {@code last_name},
+     * {@code lastName} and {@code last name} are the same column. Others are ignored.
+     */
+    static final class Csv extends StudentRows {
+
+        private static final List<String> COLUMNS = List.of("name", "lastname", "email");
+
+        private final CsvReader reader;
+
+        private final Map<String, Integer> positions = new HashMap<>();
+
+        private long number;
+
+        Csv(BufferedReader input) throws IOException {
+            input.mark(64 * 1024);
+            String headerLine = input.readLine();
+            input.reset();
+            this.reader = new CsvReader(input, CsvReader.detectDelimiter(headerLine == null ? "" : headerLine));
+            List<String> header = reader.next();
+            for (int i = 0; header != null && i < header.size(); i++) {
+                positions.putIfAbsent(normalize(header.get(i)), i);
+            }
+            List<String> missing = new ArrayList<>(COLUMNS);
+            missing.removeAll(positions.keySet());
+            if (!missing.isEmpty()) {
+                throw new InvalidImportException(missing);
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            List<String> fields;
+            do {
+                fields = reader.next();
+                if (fields == null) {
+                    return null;
+                }
+                number++;
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+            Student student = new Student();
+            student.setName(field(fields, "name"));
+            student.setLastName(field(fields, "lastname"));
+            student.setEmail(field(fields, "email"));
+            return new Row(number, student, null);
+        }
+
+        private String field(List<String> fields, String column) {
+            int position = positions.get(column);
+            return position < fields.size() ? emptyToNull(unescapeFormula(fields.get(position)).trim()) : null;
+        }
+
+        /**
+         * Takes off the {@code '} the export puts in front of cells that look like a
+         * formula, so an export loads back as it was.
+         */
+        private static String unescapeFormula(String value) {
+            return value.startsWith("'") && StudentCsvWriter.isFormula(value.substring(1)) ? value.substring(1) : value;
+        }
+
+        private static String normalize(String column) {
+            return column.replace("\uFEFF", "").replaceAll("[\\s_-]", "").toLowerCase(Locale.ROOT);
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    /**
+     * One student object per line, with the same fields as the JSON API; ids and
+     * versions in the input are ignored, every row is a new student.
+     */
+    static final class Ndjson extends StudentRows {
+
+        private final BufferedReader input;
+
+        private final ObjectMapper objectMapper;
+
+        private long number;
+
+        Ndjson(BufferedReader input, ObjectMapper objectMapper) {
+            this.input = input;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row next() throws IOException {
+            String line;
+            do {
+                line = input.readLine();
+                if (line == null) {
+                    return null;
+                }
+                number++;
+            } while (line.isBlank());
+            try {
+                Student student = objectMapper.readValue(line, Student.class);
+                student.setId(null);
+                student.setVersion(null);
+                return new Row(number, student, null);
+            } catch (JsonProcessingException e) {
+                return new Row(number, null, ValidationMessages.IMPORT_MALFORMED_ROW + e.getOriginalMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.microservices.users.models.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Image bytes, kept out of the {@code students} table and keyed by their SHA-256 so
+ * that students with the same picture share one row. Resized variants are stored under
+ * {@code <digest>-<variant>}. Only
+ * {@link com.microservices.users.storage.DatabaseStudentImageStore} reads them.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "student_images")
+public class StudentImage {
+
+    public static final int MAX_SIZE = 16 * 1024 * 1024;
+
+    @Id
+    @Column(name = "digest", length = 80)
+    private String digest;
+
+    @Column(name = "data", nullable = false, length = MAX_SIZE)
+    private byte[] data;
+}
@@ -0,0 +1,14 @@
+package com.microservices.users.models.repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.microservices.users.models.entity.StudentImage;
+
+public interface StudentImageRepository extends CrudRepository<StudentImage, String> {
+
+    @Modifying
+    @Query("delete from StudentImage i where i.digest = ?1 or i.digest like concat(?1, '-%')")
+    void deleteWithVariants(String digest);
+}
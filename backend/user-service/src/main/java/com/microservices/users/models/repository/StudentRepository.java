@@ -1,23 +1,58 @@
 package com.microservices.users.models.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import com.microservices.commonservice.repository.CommonRepository;
 import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.users.search.StudentSearchRow;
+
+public interface StudentRepository extends CommonRepository<Student> {
 
-public interface StudentRepository extends PagingAndSortingRepository<Student, Long> {
+    /**
+     * Case-insensitive substring match on name or last name. Written as
+     * {@code lower(column) like} so that PostgreSQL can answer it from the
+     * {@code pg_trgm} GIN indexes on {@code lower(name)} and {@code lower(last_name)}
+     * instead of scanning the table. Wildcards in the text are taken literally only when
+     * escaped with a backslash.
+     */
+    String SEARCH = "select a from Student a where lower(a.name) like concat('%', lower(?1), '%') escape '\\'"
+            + " or lower(a.lastName) like concat('%', lower(?1), '%') escape '\\'";
 
-    @Query("select a from Student a where upper(a.name) like upper(concat('%', ?1, '%')) or " +
-            "upper(a.lastName) like upper(concat('%', ?1, '%'))")
+    @Query(SEARCH)
     List<Student> findByNameAndLastName(String text);
 
-    @Query("select a from Student a where upper(a.name) like upper(concat('%', ?1, '%')) or " +
-            "upper(a.lastName) like upper(concat('%', ?1, '%'))")
+    @Query(SEARCH)
     Page<Student> findByNameAndLastNameWithPageable(String name, Pageable pageable);
 
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select new com.microservices.users.search.StudentSearchRow(s.id, s.name, s.lastName, s.email)"
+            + " from Student s")
+    Stream<StudentSearchRow> streamSearchRowsBy();
+
+    @Query("select new com.microservices.users.search.StudentSearchRow(s.id, s.name, s.lastName, s.email)"
+            + " from Student s where s.id in ?1")
+    List<StudentSearchRow> findSearchRowsByIdIn(Collection<Long> ids);
+
+    @Query("select s.imageDigest from Student s where s.id = ?1 and s.imageDigest is not null")
+    Optional<String> findImageDigestById(Long id);
+
+    @Query("select s.email from Student s where s.email in ?1")
+    List<String> findEmailsByEmailIn(Collection<String> emails);
+
+    long countByImageDigest(String imageDigest);
+
     Page<Student> findByNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(String name, String lastName, Pageable pageable);
 }
@@ -0,0 +1,21 @@
+package com.microservices.users.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The columns the suggestion index needs, selected without loading {@code Student}
+ * entities into the persistence context.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentSearchRow {
+
+    private final Long id;
+
+    private final String name;
+
+    private final String lastName;
+
+    private final String email;
+}
@@ -0,0 +1,17 @@
+package com.microservices.users.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StudentSuggestion {
+
+    private final Long id;
+
+    private final String displayName;
+
+    public static String displayName(String name, String lastName) {
+        return lastName == null ? name : name + " " + lastName;
+    }
+}
@@ -0,0 +1,301 @@
+package com.microservices.users.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.microservices.users.models.repository.StudentRepository;
+
+/**
+ * Prefix index for the search box: every word of the name and last name, and the
+ * email, normalized (lower case, no accents) and kept sorted in a skip list, so a
+ * lookup is a seek plus a short walk whatever the number of students.
+ * <p>
+ * Filled by one streaming scan when the application is ready, then kept in step by
+ * {@link #refresh(Collection)} after each committed write. Until the scan is done
+ * {@link #isReady()} is {@code false} and callers should ask the database.
+ * <p>
+ * Writes made through other instances are never refreshed here, so the scan is run
+ * again every {@code students.suggestions.resync-interval}; between two scans this
+ * index can miss or still show students changed elsewhere.
+ */
+@Component
+public class StudentSuggestionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentSuggestionIndex.class);
+
+    private static final char SEPARATOR = '\0';
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private static final int REFRESH_CHUNK = 500;
+
+    /**
+     * {@code term + '\0' + id}, so the same term can point at several students.
+     */
+    private final ConcurrentSkipListMap<String, StudentSuggestion> entries = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentMap<Long, List<String>> keysById = new ConcurrentHashMap<>();
+
+    /**
+     * Students written or deleted while a scan runs, whose rows it read may be stale.
+     */
+    private final Set<Long> changedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    private final StudentRepository repository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Executor executor;
+
+    private volatile boolean loading;
+
+    private volatile boolean ready;
+
+    public StudentSuggestionIndex(StudentRepository repository, PlatformTransactionManager transactionManager,
+                                  @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                  Executor executor) {
+        this.repository = repository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.executor = executor;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return keysById.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        executor.execute(this::load);
+    }
+
+    @Scheduled(initialDelayString = "${students.suggestions.resync-interval:PT5M}",
+            fixedDelayString = "${students.suggestions.resync-interval:PT5M}")
+    public void resync() {
+        load();
+    }
+
+    /**
+     * Streams the students and brings the index in line with them: changed rows are
+     * re-indexed and students that are gone are dropped. A student written through this
+     * instance during the scan is newer than the row read here, so it is left alone.
+     */
+    public synchronized void load() {
+        loading = true;
+        try {
+            long start = System.nanoTime();
+            Set<Long> seen = new HashSet<>();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<StudentSearchRow> rows = repository.streamSearchRowsBy()) {
+                    rows.forEach(row -> {
+                        seen.add(row.getId());
+                        keysById.compute(row.getId(), (id, previous) ->
+                                changedWhileLoading.contains(id) ? previous : index(row, previous));
+                    });
+                }
+            });
+            List<Long> gone = new ArrayList<>(keysById.keySet());
+            gone.removeAll(seen);
+            gone.forEach(id -> keysById.computeIfPresent(id, (key, previous) ->
+                    changedWhileLoading.contains(key) ? previous : unindex(previous)));
+            if (ready) {
+                log.debug("Resynced {} student suggestions in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+            } else {
+                ready = true;
+                log.info("Indexed {} students for suggestions in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not scan the students for suggestions, searching the database until it succeeds", e);
+        } finally {
+            loading = false;
+            changedWhileLoading.clear();
+        }
+    }
+
+    /**
+     * Up to {@code limit} students having, for every word of the query, a term that
+     * starts with it. The longest word drives the seek; the others filter.
+     */
+    public List<StudentSuggestion> suggest(String query, int limit) {
+        List<String> words = words(normalize(query));
+        if (words.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String lead = words.stream().max((a, b) -> Integer.compare(a.length(), b.length())).get();
+        Map<Long, StudentSuggestion> found = new LinkedHashMap<>();
+        for (StudentSuggestion suggestion : entries.subMap(lead, lead + Character.MAX_VALUE).values()) {
+            if (!found.containsKey(suggestion.getId()) && matchesAll(suggestion.getId(), words)) {
+                found.put(suggestion.getId(), suggestion);
+                if (found.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    /**
+     * Re-reads these students once the current transaction commits (at once when there
+     * is none) and updates or drops their entries. Ids are collected per transaction.
+     */
+    public void refresh(Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(ids);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Long> collected = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, collected);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(collected);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StudentSuggestionIndex.this);
+                }
+            });
+            pending = collected;
+        }
+        pending.addAll(ids);
+    }
+
+    private void apply(Collection<Long> ids) {
+        List<Long> remaining = new ArrayList<>(ids);
+        for (int from = 0; from < remaining.size(); from += REFRESH_CHUNK) {
+            List<Long> chunk = remaining.subList(from, Math.min(from + REFRESH_CHUNK, remaining.size()));
+            Set<Long> missing = new HashSet<>(chunk);
+            for (StudentSearchRow row : repository.findSearchRowsByIdIn(chunk)) {
+                missing.remove(row.getId());
+                put(row);
+            }
+            missing.forEach(this::remove);
+        }
+    }
+
+    void put(StudentSearchRow row) {
+        if (loading) {
+            changedWhileLoading.add(row.getId());
+        }
+        keysById.compute(row.getId(), (id, previous) -> index(row, previous));
+    }
+
+    void remove(Long id) {
+        if (loading) {
+            changedWhileLoading.add(id);
+        }
+        keysById.computeIfPresent(id, (key, previous) -> unindex(previous));
+    }
+
+    /**
+     * Replaces the previous entries of the student, unless they already say the same,
+     * which is the case for most rows of a resync.
+     */
+    private List<String> index(StudentSearchRow row, List<String> previous) {
+        StudentSuggestion suggestion = new StudentSuggestion(row.getId(),
+                StudentSuggestion.displayName(row.getName(), row.getLastName()));
+        Set<String> terms = new LinkedHashSet<>();
+        terms.addAll(words(normalize(row.getName())));
+        terms.addAll(words(normalize(row.getLastName())));
+        if (row.getEmail() != null) {
+            terms.add(normalize(row.getEmail()));
+        }
+        List<String> keys = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            keys.add(term + SEPARATOR + row.getId());
+        }
+        if (previous != null) {
+            if (previous.equals(keys) && (keys.isEmpty()
+                    || Objects.equals(entries.get(keys.get(0)).getDisplayName(), suggestion.getDisplayName()))) {
+                return previous;
+            }
+            previous.forEach(entries::remove);
+        }
+        keys.forEach(key -> entries.put(key, suggestion));
+        return keys;
+    }
+
+    private List<String> unindex(List<String> previous) {
+        previous.forEach(entries::remove);
+        return null;
+    }
+
+    private boolean matchesAll(Long id, List<String> words) {
+        if (words.size() == 1) {
+            return true;
+        }
+        List<String> keys = keysById.get(id);
+        if (keys == null) {
+            return false;
+        }
+        return words.stream().allMatch(word -> keys.stream().anyMatch(key -> key.startsWith(word)));
+    }
+
+    /**
+     * Words on spaces; hyphenated words are also indexed by each part, so that both
+     * "jean-pierre" and "pierre" find Jean-Pierre.
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : SPACES.split(text.trim())) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            words.add(word);
+            if (word.indexOf('-') > 0) {
+                for (String part : word.split("-")) {
+                    if (!part.isEmpty()) {
+                        words.add(part);
+                    }
+                }
+            }
+        }
+        return words;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
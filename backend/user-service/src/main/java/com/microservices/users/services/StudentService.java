@@ -1,12 +1,18 @@
 package com.microservices.users.services;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import com.microservices.commonservice.service.CommonService;
 import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.users.search.StudentSuggestion;
 
 
 public interface StudentService extends CommonService<Student> {
@@ -15,7 +21,20 @@ public interface StudentService extends CommonService<Student> {
 
     List<Student> findByNameAndLastName(String text);
 
+    List<StudentSuggestion> suggest(String query, int limit);
+
     Iterable<Student> findAllById(Iterable<Long> ids);
 
+    void findAllByIdInOrder(List<Long> ids, Consumer<Student> consumer);
+
     void deleteCourseStudentById(Long id);
+
+    Student saveWithImage(Student student, InputStream image, String contentType) throws IOException;
+
+    Student modifyWithImage(Long id, Consumer<Student> changes, InputStream image, String contentType)
+            throws IOException;
+
+    Optional<Resource> findImage(Student student);
+
+    Optional<Resource> findImageVariant(Student student, int size);
 }
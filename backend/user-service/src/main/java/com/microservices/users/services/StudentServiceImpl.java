@@ -1,33 +1,110 @@
 package com.microservices.users.services;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.microservices.commonservice.executor.BlockingExecutors;
+import com.microservices.commonservice.executor.ExecutorProperties;
 import com.microservices.commonservice.service.CommonServiceImpl;
 import com.microservices.commonstudent.models.entity.Student;
 import com.microservices.users.clients.CourseFeignClient;
 import com.microservices.users.models.repository.StudentRepository;
+import com.microservices.users.search.StudentSuggestion;
+import com.microservices.users.search.StudentSuggestionIndex;
+import com.microservices.users.storage.StoredImage;
+import com.microservices.users.storage.StudentImageStore;
+import com.microservices.users.storage.StudentImageVariants;
 
 @Service
 public class StudentServiceImpl extends CommonServiceImpl<Student, StudentRepository> implements StudentService {
 
+    private static final Logger log = LoggerFactory.getLogger(StudentServiceImpl.class);
+
+    private static final String IMAGE_TYPE_PREFIX = "image/";
+
+    static final int LOOKUP_CHUNK_SIZE = 500;
+
+    static final int LOOKUP_PARALLELISM = 4;
+
     @Autowired
     private CourseFeignClient courseFeignClient;
 
+    @Autowired
+    private StudentImageStore imageStore;
+
+    @Autowired
+    private StudentImageVariants imageVariants;
+
+    @Autowired
+    private StudentSuggestionIndex suggestionIndex;
+
+    /**
+     * Kept apart from the application task executor, which runs the streaming response
+     * waiting for these lookups, so that a busy pool cannot end up waiting on itself.
+     */
+    private final ThreadPoolExecutor lookupExecutor = BlockingExecutors.elastic(lookupPool(), "student-lookup-");
+
     @Override
     public Page<Student> findByNameAndLastNameWithPageable(String text, Pageable pageable) {
-        return repository.findByNameAndLastNameWithPageable(text, pageable);
+        return repository.findByNameAndLastNameWithPageable(escapeLike(text), pageable);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Student> findByNameAndLastName(String text) {
-        return repository.findByNameAndLastName(text);
+        return repository.findByNameAndLastName(escapeLike(text));
+    }
+
+    /**
+     * From the in-memory index once it is loaded, from the database until then.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<StudentSuggestion> suggest(String query, int limit) {
+        if (suggestionIndex.isReady()) {
+            return suggestionIndex.suggest(query, limit);
+        }
+        return repository.findByNameAndLastNameWithPageable(escapeLike(query.trim()), PageRequest.of(0, limit))
+                .map(student -> new StudentSuggestion(student.getId(),
+                        StudentSuggestion.displayName(student.getName(), student.getLastName())))
+                .getContent();
+    }
+
+    /**
+     * A search for {@code 50%} or {@code a_b} matches those characters, not any text.
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     @Override
@@ -36,15 +113,239 @@ public class StudentServiceImpl extends CommonServiceImpl<Student, StudentReposi
         return repository.findAllById(ids);
     }
 
+    /**
+     * Looks the ids up {@value #LOOKUP_CHUNK_SIZE} at a time, up to
+     * {@value #LOOKUP_PARALLELISM} chunks at once, each in its own read-only transaction,
+     * and passes the students on in the order of the ids, once each, as soon as the
+     * chunks before them are done. Unknown ids are skipped. Not transactional itself, so
+     * no connection is held while waiting; inside a caller's transaction the chunks run
+     * one after the other on the caller's thread so that they see its writes.
+     */
+    @Override
+    public void findAllByIdInOrder(List<Long> ids, Consumer<Student> consumer) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += LOOKUP_CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, distinct.size())));
+        }
+        boolean inline = TransactionSynchronizationManager.isActualTransactionActive();
+        List<CompletableFuture<Map<Long, Student>>> lookups = new ArrayList<>(chunks.size());
+        try {
+            for (int i = 0; i < Math.min(LOOKUP_PARALLELISM, chunks.size()); i++) {
+                lookups.add(lookup(chunks.get(i), inline));
+            }
+            for (int i = 0; i < chunks.size(); i++) {
+                if (i + LOOKUP_PARALLELISM < chunks.size()) {
+                    lookups.add(lookup(chunks.get(i + LOOKUP_PARALLELISM), inline));
+                }
+                Map<Long, Student> found = join(lookups.get(i));
+                for (Long id : chunks.get(i)) {
+                    Student student = found.get(id);
+                    if (student != null) {
+                        consumer.accept(student);
+                    }
+                }
+            }
+        } finally {
+            lookups.forEach(lookup -> lookup.cancel(false));
+        }
+    }
+
+    private CompletableFuture<Map<Long, Student>> lookup(List<Long> chunk, boolean inline) {
+        Supplier<Map<Long, Student>> query = () -> {
+            Map<Long, Student> found = new HashMap<>();
+            repository.findAllById(chunk).forEach(student -> found.put(student.getId(), student));
+            return found;
+        };
+        if (!inline) {
+            try {
+                return CompletableFuture.supplyAsync(query, lookupExecutor);
+            } catch (RejectedExecutionException e) {
+                // the pool is saturated: do this chunk here rather than fail the request
+            }
+        }
+        return CompletableFuture.completedFuture(query.get());
+    }
+
+    private static ExecutorProperties.Elastic lookupPool() {
+        ExecutorProperties.Elastic pool = new ExecutorProperties.Elastic();
+        pool.setMaxThreads(16);
+        pool.setQueueCapacity(256);
+        return pool;
+    }
+
+    @PreDestroy
+    public void shutdownLookups() {
+        lookupExecutor.shutdown();
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     @Override
     public void deleteCourseStudentById(Long id) {
         courseFeignClient.deleteCourseByStudentId(id);
     }
 
+    /**
+     * Saves or updates the student and, when there is one, stores the image and records
+     * its size, type and digest on the row. The digest is computed here, once per
+     * upload; identical uploads share one stored image. Resized variants of a new image
+     * are made in the background after commit.
+     */
+    @Override
+    @Transactional
+    public Student saveWithImage(Student student, InputStream image, String contentType) throws IOException {
+        String previousDigest = student.getImageDigest();
+        Student saved = student.getId() == null ? save(student) : update(student);
+        if (image != null) {
+            InputStream buffered = new BufferedInputStream(image);
+            String detectedType = detectContentType(buffered, contentType);
+            StoredImage stored = imageStore.put(buffered);
+            saved.setImageSize(stored.getSize());
+            saved.setImageContentType(detectedType);
+            saved.setImageDigest(stored.getDigest());
+            if (!stored.getDigest().equals(previousDigest)) {
+                if (imageVariants.canResize(detectedType)) {
+                    imageVariants.schedule(stored.getDigest());
+                }
+                if (previousDigest != null) {
+                    deleteImageIfUnused(previousDigest);
+                }
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * {@link #modify} with an image: the changes and the upload are applied to the managed
+     * student, never to the instance {@link #findById} may share with other requests.
+     */
+    @Override
+    @Transactional
+    public Student modifyWithImage(Long id, Consumer<Student> changes, InputStream image, String contentType)
+            throws IOException {
+        Student student = loadById(id);
+        changes.accept(student);
+        return saveWithImage(student, image, contentType);
+    }
+
+    /**
+     * From the first bytes of the upload; the client's type is only trusted when it says
+     * image and the bytes are not recognised.
+     */
+    private String detectContentType(InputStream image, String declaredType) throws IOException {
+        String detected = URLConnection.guessContentTypeFromStream(image);
+        if (detected != null && detected.startsWith(IMAGE_TYPE_PREFIX)) {
+            return detected;
+        }
+        if (declaredType != null && declaredType.startsWith(IMAGE_TYPE_PREFIX)) {
+            return declaredType;
+        }
+        return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    @Override
+    public Optional<Resource> findImage(Student student) {
+        return student.hasImage() ? imageStore.get(student.getImageDigest()) : Optional.empty();
+    }
+
+    /**
+     * A missing variant, of an image uploaded before variants existed or while the queue
+     * was full, is queued again and the caller falls back to the original.
+     */
+    @Override
+    public Optional<Resource> findImageVariant(Student student, int size) {
+        if (!student.hasImage() || !imageVariants.canResize(student.getImageContentType())) {
+            return Optional.empty();
+        }
+        Optional<Resource> variant = imageVariants.get(student.getImageDigest(), size);
+        if (variant.isEmpty()) {
+            imageVariants.schedule(student.getImageDigest());
+        }
+        return variant;
+    }
+
     @Override
     @Transactional
     public void deleteById(Long id) {
+        Optional<String> digest = repository.findImageDigestById(id);
         super.deleteById(id);
+        digest.ifPresent(this::deleteImageIfUnused);
         this.deleteCourseStudentById(id);
     }
+
+    @Override
+    @Transactional
+    public List<Student> saveAll(List<Student> students) {
+        List<Student> saved = super.saveAll(students);
+        suggestionIndex.refresh(ids(saved));
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public List<Student> updateAll(List<Student> students) {
+        List<Student> updated = super.updateAll(students);
+        suggestionIndex.refresh(ids(updated));
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllById(List<Long> ids) {
+        super.deleteAllById(ids);
+        suggestionIndex.refresh(ids);
+    }
+
+    /**
+     * Every single-row write goes through here, patches included, so this is where the
+     * suggestion index learns about them.
+     */
+    @Override
+    protected void evict(Long id) {
+        super.evict(id);
+        if (id != null) {
+            suggestionIndex.refresh(List.of(id));
+        }
+    }
+
+    private static List<Long> ids(List<Student> students) {
+        return students.stream().map(Student::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Once the transaction has committed, so a rollback, of the course call in
+     * {@link #deleteById(Long)} say, never leaves a student pointing at a deleted image.
+     * The store checks the count again under its own lock, and keeps the image if an
+     * upload of the same content is in flight.
+     */
+    private void deleteImageIfUnused(String digest) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteImageNow(digest);
+                }
+            });
+        } else {
+            deleteImageNow(digest);
+        }
+    }
+
+    private void deleteImageNow(String digest) {
+        try {
+            imageStore.deleteIfUnused(digest, () -> repository.countByImageDigest(digest) == 0);
+        } catch (RuntimeException e) {
+            log.warn("Could not delete unused image {}", digest, e);
+        }
+    }
 }
@@ -0,0 +1,97 @@
+package com.microservices.users.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.microservices.users.models.entity.StudentImage;
+import com.microservices.users.models.repository.StudentImageRepository;
+
+/**
+ * Images in the {@code student_images} table. Uploads are spooled to a temporary file
+ * and streamed into the insert, so only the buffer is in memory. A {@code bytea} value is
+ * still read back in one piece; use the file system store to stream reads as well.
+ * Variants are rows of their own, keyed by {@code <digest>-<variant>}.
+ */
+@Component
+@ConditionalOnProperty(name = "students.images.store", havingValue = "database", matchIfMissing = true)
+public class DatabaseStudentImageStore implements StudentImageStore {
+
+    private static final String INSERT = "insert into student_images (digest, data) values (?, ?)";
+
+    private final StudentImageRepository repository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final StudentImageProperties properties;
+
+    private final ImagePins pins = new ImagePins();
+
+    private final Path spoolDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+
+    public DatabaseStudentImageStore(StudentImageRepository repository, JdbcTemplate jdbcTemplate,
+                                     StudentImageProperties properties) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    @Transactional
+    public StoredImage put(InputStream content) throws IOException {
+        try (SpooledImage spooled = SpooledImage.spool(content, spoolDirectory, properties.getMaxSize().toBytes())) {
+            StoredImage stored = spooled.getImage();
+            pins.storePinned(stored.getDigest(), () -> {
+                if (!repository.existsById(stored.getDigest())) {
+                    try (InputStream data = Files.newInputStream(spooled.getFile())) {
+                        jdbcTemplate.update(INSERT, statement -> {
+                            statement.setString(1, stored.getDigest());
+                            statement.setBinaryStream(2, data, stored.getSize());
+                        });
+                    }
+                }
+            });
+            return stored;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Resource> get(String digest) {
+        return repository.findById(digest).map(image -> new ByteArrayResource(image.getData()));
+    }
+
+    @Override
+    @Transactional
+    public void putVariant(String digest, String variant, byte[] data) {
+        repository.save(new StudentImage(StudentImageStore.variantKey(digest, variant), data));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Resource> getVariant(String digest, String variant) {
+        return get(StudentImageStore.variantKey(digest, variant));
+    }
+
+    /**
+     * Called once the transaction that dropped the last reference has committed, when its
+     * resources may still be bound to the thread, hence a new transaction.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean deleteIfUnused(String digest, BooleanSupplier unused) {
+        return pins.deleteIfUnused(digest, unused, () -> repository.deleteWithVariants(digest));
+    }
+}
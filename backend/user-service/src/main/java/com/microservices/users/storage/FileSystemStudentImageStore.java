@@ -0,0 +1,108 @@
+package com.microservices.users.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * One file per distinct image under {@code students.images.dir}, named by digest and
+ * spread over 256 sub-directories. Uploads are spooled next to them, since the name is
+ * only known at the end, then moved into place, so a reader never sees a partial image.
+ * Reads are streamed from disk. Variants sit beside the original as
+ * {@code <digest>-<variant>}.
+ */
+@Component
+@ConditionalOnProperty(name = "students.images.store", havingValue = "filesystem")
+public class FileSystemStudentImageStore implements StudentImageStore {
+
+    private final Path directory;
+
+    private final StudentImageProperties properties;
+
+    private final ImagePins pins = new ImagePins();
+
+    public FileSystemStudentImageStore(StudentImageProperties properties) throws IOException {
+        this.directory = Files.createDirectories(Paths.get(properties.getDir()));
+        this.properties = properties;
+    }
+
+    @Override
+    public StoredImage put(InputStream content) throws IOException {
+        try (SpooledImage spooled = SpooledImage.spool(content, directory, properties.getMaxSize().toBytes())) {
+            StoredImage stored = spooled.getImage();
+            Path path = path(stored.getDigest());
+            pins.storePinned(stored.getDigest(), () -> {
+                if (!Files.exists(path)) {
+                    Files.createDirectories(path.getParent());
+                    Files.move(spooled.getFile(), path, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+            });
+            return stored;
+        }
+    }
+
+    @Override
+    public Optional<Resource> get(String digest) {
+        Path path = path(digest);
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    /**
+     * Written to a temporary name and moved, like uploads.
+     */
+    @Override
+    public void putVariant(String digest, String variant, byte[] data) throws IOException {
+        Path path = path(StudentImageStore.variantKey(digest, variant));
+        Files.createDirectories(path.getParent());
+        Path temporary = Files.createTempFile(path.getParent(), digest, ".tmp");
+        try {
+            Files.write(temporary, data);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public Optional<Resource> getVariant(String digest, String variant) {
+        return get(StudentImageStore.variantKey(digest, variant));
+    }
+
+    @Override
+    public boolean deleteIfUnused(String digest, BooleanSupplier unused) {
+        return pins.deleteIfUnused(digest, unused, () -> delete(digest));
+    }
+
+    private void delete(String digest) {
+        Path path = path(digest);
+        try {
+            Files.deleteIfExists(path);
+            if (Files.isDirectory(path.getParent())) {
+                try (DirectoryStream<Path> variants = Files.newDirectoryStream(path.getParent(), digest + "-*")) {
+                    for (Path variant : variants) {
+                        Files.deleteIfExists(variant);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path path(String digest) {
+        return directory.resolve(digest.substring(0, 2)).resolve(digest);
+    }
+}
@@ -0,0 +1,85 @@
+package com.microservices.users.storage;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps an image that an upload has just stored, or found already stored, from being
+ * deleted as unused before the upload's transaction commits the student that uses it.
+ * The store's existence check and write, and the unused check and delete, run under the
+ * same per-digest lock. Pins are per instance: instances sharing one store directory
+ * are not covered.
+ */
+final class ImagePins {
+
+    private static final int STRIPES = 64;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    private final Map<String, Integer> pins = new ConcurrentHashMap<>();
+
+    ImagePins() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Runs {@code store} with the digest pinned until the current transaction completes,
+     * or until it returns when there is none.
+     */
+    void storePinned(String digest, IOAction store) throws IOException {
+        synchronized (lock(digest)) {
+            pins.merge(digest, 1, Integer::sum);
+            try {
+                store.run();
+            } catch (IOException | RuntimeException e) {
+                unpin(digest);
+                throw e;
+            }
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    unpin(digest);
+                }
+            });
+        } else {
+            unpin(digest);
+        }
+    }
+
+    /**
+     * Runs {@code delete} unless an upload has the digest pinned or {@code unused} says
+     * otherwise.
+     */
+    boolean deleteIfUnused(String digest, BooleanSupplier unused, Runnable delete) {
+        synchronized (lock(digest)) {
+            if (pins.containsKey(digest) || !unused.getAsBoolean()) {
+                return false;
+            }
+            delete.run();
+            return true;
+        }
+    }
+
+    private void unpin(String digest) {
+        pins.computeIfPresent(digest, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private Object lock(String digest) {
+        return locks[Math.floorMod(digest.hashCode(), STRIPES)];
+    }
+
+    @FunctionalInterface
+    interface IOAction {
+
+        void run() throws IOException;
+    }
+}
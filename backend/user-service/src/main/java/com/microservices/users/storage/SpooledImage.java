@@ -0,0 +1,65 @@
+package com.microservices.users.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import com.microservices.users.exceptions.ImageTooLargeException;
+
+/**
+ * An upload copied to a temporary file through a fixed-size buffer and digested on the
+ * way, so that neither the stores nor the size check ever hold the whole image in
+ * memory. Closing it deletes the file unless a store moved it away.
+ */
+final class SpooledImage implements Closeable {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Path file;
+
+    private final StoredImage image;
+
+    private SpooledImage(Path file, StoredImage image) {
+        this.file = file;
+        this.image = image;
+    }
+
+    static SpooledImage spool(InputStream content, Path directory, long maxSize) throws IOException {
+        MessageDigest digest = StoredImage.sha256();
+        Path file = Files.createTempFile(directory, "upload-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long size = 0;
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                size += read;
+                if (size > maxSize) {
+                    throw new ImageTooLargeException(maxSize);
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+            return new SpooledImage(file, StoredImage.of(size, digest));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    StoredImage getImage() {
+        return image;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
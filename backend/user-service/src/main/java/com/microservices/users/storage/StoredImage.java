@@ -0,0 +1,32 @@
+package com.microservices.users.storage;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What a {@link StudentImageStore} reports about the bytes it just wrote.
+ */
+@Getter
+@AllArgsConstructor
+public class StoredImage {
+
+    private final long size;
+
+    private final String digest;
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static StoredImage of(long size, MessageDigest digest) {
+        return new StoredImage(size, HexFormat.of().formatHex(digest.digest()));
+    }
+}
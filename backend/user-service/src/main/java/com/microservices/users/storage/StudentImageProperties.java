@@ -0,0 +1,63 @@
+package com.microservices.users.storage;
+
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.microservices.commonservice.executor.ExecutorProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "students.images")
+public class StudentImageProperties {
+
+    /**
+     * {@code database} or {@code filesystem}.
+     */
+    private String store = "database";
+
+    /**
+     * Root directory of the file system store.
+     */
+    private String dir;
+
+    /**
+     * Uploads larger than this are rejected with 413 as soon as the limit is crossed.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(10);
+
+    private final Variants variants = new Variants();
+
+    @Getter
+    @Setter
+    public static class Variants {
+
+        /**
+         * Longest side, in pixels, of each variant made from an upload. The largest one is
+         * the recompressed full view; the others are thumbnails.
+         */
+        private List<Integer> sizes = List.of(64, 256, 1024);
+
+        /**
+         * JPEG quality of the variants, between 0 and 1.
+         */
+        private float quality = 0.85f;
+
+        /**
+         * Decoding is CPU and memory hungry, so only a few images are resized at a time.
+         * Uploads arriving while the queue is full get their variants on first request.
+         */
+        private final ExecutorProperties.Elastic executor = new ExecutorProperties.Elastic();
+
+        public Variants() {
+            executor.setMaxThreads(2);
+            executor.setQueueCapacity(200);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.microservices.users.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Content-addressed store for student images: each image is kept once under its hex
+ * SHA-256, however many students use it. Selected with {@code students.images.store}:
+ * {@code database} (default) or {@code filesystem}.
+ */
+public interface StudentImageStore {
+
+    /**
+     * Digests the content and stores it unless an identical image is already there. Either
+     * way the image cannot be deleted until the current transaction completes.
+     */
+    StoredImage put(InputStream content) throws IOException;
+
+    Optional<Resource> get(String digest);
+
+    /**
+     * Stores a derived rendition of the image next to it, replacing any previous one.
+     */
+    void putVariant(String digest, String variant, byte[] data) throws IOException;
+
+    Optional<Resource> getVariant(String digest, String variant);
+
+    /**
+     * Removes the image together with its variants if {@code unused} still holds once
+     * no upload of the same image is in flight; runs in a transaction of its own.
+     *
+     * @return whether it was removed
+     */
+    boolean deleteIfUnused(String digest, BooleanSupplier unused);
+
+    static String variantKey(String digest, String variant) {
+        return digest + "-" + variant;
+    }
+}
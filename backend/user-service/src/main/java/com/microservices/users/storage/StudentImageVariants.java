@@ -0,0 +1,227 @@
+package com.microservices.users.storage;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.microservices.commonservice.executor.BlockingExecutors;
+
+/**
+ * Resized JPEG renditions of student images, made in the background with ImageIO and
+ * kept in the {@link StudentImageStore} next to the original. Each variant fits in a
+ * square of one of {@code students.images.variants.sizes}; smaller images are only
+ * recompressed, never enlarged.
+ * <p>
+ * Work goes through a small bounded pool. When it is full the upload is not held up:
+ * the variants are made later, the first time one of them is asked for.
+ */
+@Component
+public class StudentImageVariants {
+
+    public static final MediaType CONTENT_TYPE = MediaType.IMAGE_JPEG;
+
+    private static final Logger log = LoggerFactory.getLogger(StudentImageVariants.class);
+
+    private final StudentImageStore store;
+
+    private final List<Integer> sizes;
+
+    private final float quality;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public StudentImageVariants(StudentImageStore store, StudentImageProperties properties) {
+        StudentImageProperties.Variants variants = properties.getVariants();
+        this.store = store;
+        this.sizes = List.copyOf(variants.getSizes());
+        this.quality = variants.getQuality();
+        this.executor = BlockingExecutors.elastic(variants.getExecutor(), "image-variants-");
+    }
+
+    public boolean isSupported(int size) {
+        return sizes.contains(size);
+    }
+
+    /**
+     * Whether ImageIO can decode images of this type; others are only served as uploaded.
+     */
+    public boolean canResize(String contentType) {
+        return contentType != null && ImageIO.getImageReadersByMIMEType(contentType).hasNext();
+    }
+
+    public Optional<Resource> get(String digest, int size) {
+        return store.getVariant(digest, String.valueOf(size));
+    }
+
+    /**
+     * Queues the variants of an image once the current transaction, if any, has
+     * committed, so the worker can read the original.
+     */
+    public void schedule(String digest) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(digest);
+                }
+            });
+        } else {
+            submit(digest);
+        }
+    }
+
+    /**
+     * An image already queued or being resized is not queued again, however many list
+     * pages ask for its missing thumbnail meanwhile.
+     */
+    private void submit(String digest) {
+        if (!pending.add(digest)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(digest);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not make the variants of image {}", digest, e);
+                } finally {
+                    pending.remove(digest);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(digest);
+            log.debug("Variant queue full, image {} is left for later", digest);
+        }
+    }
+
+    /**
+     * Decodes the original once and writes every variant. Formats ImageIO cannot read
+     * (WebP, HEIC...) are skipped and keep being served as uploaded.
+     */
+    public void generate(String digest) throws IOException {
+        Optional<Resource> original = store.get(digest);
+        if (original.isEmpty()) {
+            return;
+        }
+        BufferedImage image;
+        try (InputStream content = original.get().getInputStream()) {
+            image = read(content, Collections.max(sizes));
+        }
+        if (image == null) {
+            log.debug("No ImageIO reader for image {}", digest);
+            return;
+        }
+        for (int size : sizes) {
+            store.putVariant(digest, String.valueOf(size), encode(scale(image, size)));
+        }
+    }
+
+    /**
+     * Decodes with source subsampling, so a large photo is never fully loaded when it is
+     * only going to be shrunk: the result is still at least twice the largest variant.
+     */
+    private static BufferedImage read(InputStream content, int largestSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, longestSide / (2 * largestSize));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Halves the image until it is within twice the target, then draws it at its final
+     * size; a single bilinear step from far larger would alias. Transparency is flattened
+     * on white since the output is JPEG.
+     */
+    static BufferedImage scale(BufferedImage image, int size) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double ratio = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        BufferedImage current = image;
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            current = draw(current, width, height);
+        }
+        return draw(current, targetWidth, targetHeight);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
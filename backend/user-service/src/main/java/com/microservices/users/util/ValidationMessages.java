@@ -3,4 +3,14 @@ package com.microservices.users.util;
 public class ValidationMessages {
 
     public static final String RESOURCE_NO_FOUND = "Recurso no encontrado!";
+
+    public static final String IMAGE_TOO_LARGE = "Imagen demasiado grande, maximo de bytes: ";
+
+    public static final String IMPORT_MISSING_COLUMNS = "Faltan columnas obligatorias en la cabecera: ";
+
+    public static final String IMPORT_MALFORMED_ROW = "Fila mal formada: ";
+
+    public static final String EMAIL_ALREADY_EXISTS = "El email ya existe";
+
+    public static final String EMAIL_REPEATED_IN_IMPORT = "El email ya aparece en una fila anterior";
 }
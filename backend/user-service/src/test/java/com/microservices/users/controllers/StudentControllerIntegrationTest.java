@@ -64,6 +64,16 @@ public class StudentControllerIntegrationTest {
         entityManager.flush();
     }
 
+    @Test
+    void shouldNotSelectFieldsHiddenFromJson() {
+        assertThat(restTemplate.getForEntity(baseUrl + "/page/0/10?fields=id,name", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForEntity(baseUrl + "/page/0/10?fields=id,imageDigest", String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForEntity(baseUrl + "/page/0/10?fields=imageSize,imageContentType", String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     void shouldGetStudentsPage() throws Exception {
         // Insérer un étudiant
@@ -1,13 +1,17 @@
 package com.microservices.users.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.commonservice.pagination.CursorPage;
+import com.microservices.commonservice.pagination.Cursors;
 import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.users.search.StudentSuggestion;
 import com.microservices.users.services.StudentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -15,14 +19,30 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,6 +62,9 @@ public class StudentControllerTest {
     @Autowired
     private WebApplicationContext webApplicationContext;
 
+    @Autowired
+    private Validator validator;
+
     private Student sampleStudent;
 
     @BeforeEach
@@ -54,7 +77,9 @@ public class StudentControllerTest {
         sampleStudent.setName("John");
         sampleStudent.setLastName("Doesson");
         sampleStudent.setEmail("john.doesson@example.com");
-        sampleStudent.setImage(new byte[]{1, 2, 3});
+        sampleStudent.setImageSize(3L);
+        sampleStudent.setImageContentType(MediaType.IMAGE_JPEG_VALUE);
+        sampleStudent.setImageDigest("039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81");
     }
 
     @Test
@@ -72,6 +97,127 @@ public class StudentControllerTest {
                 .andExpect(jsonPath("$[0].email").value("john.doesson@example.com"));
     }
 
+    @Test
+    public void testFindStudentsByCourse_StreamsAJsonArray() throws Exception {
+        Student jane = new Student();
+        jane.setId(2L);
+        jane.setName("Jane");
+        jane.setLastName("Doesson");
+        jane.setEmail("jane.doesson@example.com");
+        doAnswer(invocation -> {
+            Consumer<Student> consumer = invocation.getArgument(1);
+            consumer.accept(jane);
+            consumer.accept(sampleStudent);
+            return null;
+        }).when(studentService).findAllByIdInOrder(eq(List.of(2L, 1L)), any());
+
+        MvcResult result = mockMvc.perform(post("/students/students-by-course")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2, 1]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(1))
+                .andExpect(jsonPath("$[1].imageDigest").doesNotExist());
+    }
+
+    @Test
+    public void testExport_StreamsCsvAndNdjson() throws Exception {
+        Student jane = new Student();
+        jane.setId(2L);
+        jane.setName("Jane");
+        jane.setLastName("Doesson, \"Jr\"");
+        jane.setEmail("jane.doesson@example.com");
+        doAnswer(invocation -> {
+            Consumer<Student> consumer = invocation.getArgument(0);
+            consumer.accept(sampleStudent);
+            consumer.accept(jane);
+            return null;
+        }).when(studentService).streamAll(any());
+
+        MvcResult csv = mockMvc.perform(get("/students/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"students.csv\""))
+                .andExpect(content().string("id,name,last_name,email,created_at\r\n"
+                        + "1,John,Doesson,john.doesson@example.com,\r\n"
+                        + "2,Jane,\"Doesson, \"\"Jr\"\"\",jane.doesson@example.com,\r\n"));
+
+        MvcResult ndjson = mockMvc.perform(get("/students/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[1], Student.class).getEmail())
+                .isEqualTo("jane.doesson@example.com");
+
+        mockMvc.perform(get("/students/export").param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testShow_ReturnsETag() throws Exception {
+        sampleStudent.setVersion(3L);
+        when(studentService.findById(1L)).thenReturn(sampleStudent);
+
+        mockMvc.perform(get("/students/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(jsonPath("$.name").value("John"));
+    }
+
+    @Test
+    public void testShow_NotModifiedWithoutLoadingTheStudent() throws Exception {
+        when(studentService.findVersionById(1L)).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(get("/students/1").header("If-None-Match", "\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(studentService, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testPatch_RenamesWithIfMatch() throws Exception {
+        when(studentService.patch(1L, 3L, Collections.singletonMap("name", "Johnny"))).thenReturn(4L);
+
+        mockMvc.perform(patch("/students/1")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "\"1-3\"")
+                        .content("{\"name\":\"Johnny\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1-4\""));
+
+        verify(studentService, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testPatch_InvalidValueIsKeyedByField() throws Exception {
+        Student invalid = new Student();
+        invalid.setName("John");
+        invalid.setLastName("Doesson");
+        invalid.setEmail("not-an-email");
+        when(studentService.patch(1L, 3L, Collections.singletonMap("email", "not-an-email")))
+                .thenThrow(new ConstraintViolationException(validator.validate(invalid)));
+
+        mockMvc.perform(patch("/students/1")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "\"1-3\"")
+                        .content("{\"email\":\"not-an-email\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.email").value(startsWith(" El campo email ")));
+    }
+
     @Test
     public void testIndex_Success() throws Exception {
         Page<Student> page = new PageImpl<>(Collections.singletonList(sampleStudent));
@@ -84,6 +230,42 @@ public class StudentControllerTest {
                 .andExpect(jsonPath("$.content[0].lastName").value("Doesson"));
     }
 
+    @Test
+    public void testIndex_WithFields() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("name", "John");
+        Page<Map<String, Object>> page = new PageImpl<>(Collections.singletonList(row));
+        when(studentService.findAllFieldsPage(eq(Arrays.asList("id", "name")), any(PageRequest.class)))
+                .thenReturn(page);
+
+        mockMvc.perform(get("/students/page/0/10").param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("John"))
+                .andExpect(jsonPath("$.content[0].email").doesNotExist());
+    }
+
+    @Test
+    public void testAfter_Success() throws Exception {
+        CursorPage<Student> page = new CursorPage<>(Collections.singletonList(sampleStudent), 1, true,
+                Cursors.encode(1L));
+        when(studentService.findAllAfter(40000L, 1)).thenReturn(page);
+
+        mockMvc.perform(get("/students/page/after/" + Cursors.encode(40000L) + "/1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("John"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.nextCursor").value(Cursors.encode(1L)));
+    }
+
+    @Test
+    public void testAfter_InvalidCursor() throws Exception {
+        mockMvc.perform(get("/students/page/after/not-a-cursor/10")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testIndexPageWithText_Success() throws Exception {
         Page<Student> page = new PageImpl<>(Collections.singletonList(sampleStudent));
@@ -104,8 +286,7 @@ public class StudentControllerTest {
         updatedStudent.setLastName("Smithson");
         updatedStudent.setEmail("jane.smithson@example.com");
 
-        when(studentService.findById(1L)).thenReturn(sampleStudent);
-        when(studentService.update(any(Student.class))).thenReturn(updatedStudent);
+        modifying(sampleStudent);
 
         mockMvc.perform(put("/students/1/update")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -113,6 +294,8 @@ public class StudentControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.name").value("Jane"))
                 .andExpect(jsonPath("$.lastName").value("Smithson"));
+
+        verify(studentService, never()).findById(anyLong());
     }
 
     @Test
@@ -139,10 +322,22 @@ public class StudentControllerTest {
                 .andExpect(jsonPath("$[0].lastName").value("Doesson"));
     }
 
+    @Test
+    public void testSuggest_CapsTheLimit() throws Exception {
+        when(studentService.suggest("jo", 50)).thenReturn(List.of(new StudentSuggestion(1L, "John Doesson")));
+
+        mockMvc.perform(get("/students/suggest").param("q", "jo").param("limit", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].displayName").value("John Doesson"))
+                .andExpect(jsonPath("$[0].email").doesNotExist());
+    }
+
     @Test
     public void testCreateWithImage_Success() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "image content".getBytes());
-        when(studentService.save(any(Student.class))).thenReturn(sampleStudent);
+        when(studentService.saveWithImage(any(Student.class), any(InputStream.class), eq("image/jpeg")))
+                .thenReturn(sampleStudent);
 
         mockMvc.perform(multipart("/students/create-with-image")
                         .file(file)
@@ -169,8 +364,7 @@ public class StudentControllerTest {
     @Test
     public void testUpdateWithImage_Success() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "image content".getBytes());
-        when(studentService.findById(1L)).thenReturn(sampleStudent);
-        when(studentService.update(any(Student.class))).thenReturn(sampleStudent);
+        modifyingWithImage(sampleStudent, "image/jpeg");
 
         mockMvc.perform(multipart("/students/1/update-with-image")
                         .file(file)
@@ -184,16 +378,115 @@ public class StudentControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.name").value("John"))
                 .andExpect(jsonPath("$.lastName").value("Doesson"));
+
+        verify(studentService, never()).findById(anyLong());
     }
 
     @Test
     public void testViewImage_Success() throws Exception {
+        byte[] image = {1, 2, 3};
         when(studentService.findById(1L)).thenReturn(sampleStudent);
+        when(studentService.findImage(sampleStudent)).thenReturn(Optional.of(new ByteArrayResource(image)));
 
         mockMvc.perform(get("/students/1/uploads/image"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.IMAGE_JPEG_VALUE))
-                .andExpect(content().bytes(sampleStudent.getImage()));
+                .andExpect(content().bytes(image));
+    }
+
+    @Test
+    public void testViewImage_NotModifiedWithoutReadingTheImage() throws Exception {
+        when(studentService.findById(1L)).thenReturn(sampleStudent);
+
+        mockMvc.perform(get("/students/1/uploads/image")
+                        .header("If-None-Match", "\"" + sampleStudent.getImageDigest() + "\""))
+                .andExpect(status().isNotModified());
+
+        verify(studentService, never()).findImage(any(Student.class));
+    }
+
+    @Test
+    public void testViewImage_ServesRangesAndCachesVersionedUrls() throws Exception {
+        byte[] image = {1, 2, 3, 4, 5};
+        when(studentService.findById(1L)).thenReturn(sampleStudent);
+        when(studentService.findImage(sampleStudent)).thenReturn(Optional.of(new ByteArrayResource(image)));
+
+        mockMvc.perform(get("/students/1/uploads/image").header("Range", "bytes=1-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 1-2/5"))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().bytes(new byte[]{2, 3}));
+
+        mockMvc.perform(get("/students/1/uploads/image").param("v", String.valueOf(sampleStudent.getImageHashCode())))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + sampleStudent.getImageDigest() + "\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(header().string("Accept-Ranges", "bytes"));
+    }
+
+    @Test
+    public void testViewImage_ServesTheRequestedVariant() throws Exception {
+        byte[] thumbnail = {9, 8, 7};
+        when(studentService.findById(1L)).thenReturn(sampleStudent);
+        when(studentService.findImageVariant(sampleStudent, 64)).thenReturn(Optional.of(new ByteArrayResource(thumbnail)));
+
+        mockMvc.perform(get("/students/1/uploads/image")
+                        .param("size", "64")
+                        .param("v", String.valueOf(sampleStudent.getImageHashCode())))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + sampleStudent.getImageDigest() + "-64\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG_VALUE))
+                .andExpect(content().bytes(thumbnail));
+
+        verify(studentService, never()).findImage(any(Student.class));
+    }
+
+    @Test
+    public void testViewImage_FallsBackToTheOriginalUntilTheVariantExists() throws Exception {
+        byte[] image = {1, 2, 3};
+        when(studentService.findById(1L)).thenReturn(sampleStudent);
+        when(studentService.findImageVariant(sampleStudent, 256)).thenReturn(Optional.empty());
+        when(studentService.findImage(sampleStudent)).thenReturn(Optional.of(new ByteArrayResource(image)));
+
+        mockMvc.perform(get("/students/1/uploads/image")
+                        .param("size", "256")
+                        .param("v", String.valueOf(sampleStudent.getImageHashCode())))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + sampleStudent.getImageDigest() + "\""))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().bytes(image));
+    }
+
+    @Test
+    public void testViewImage_RejectsUnknownSize() throws Exception {
+        mockMvc.perform(get("/students/1/uploads/image").param("size", "100"))
+                .andExpect(status().isBadRequest());
+
+        verify(studentService, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testUploadImage_StreamsTheRequestBody() throws Exception {
+        modifyingWithImage(sampleStudent, "image/png");
+
+        mockMvc.perform(put("/students/1/uploads/image")
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(new byte[]{1, 2, 3}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imageHashCode").value(sampleStudent.getImageHashCode()));
+
+        verify(studentService, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testUploadImage_RejectsDeclaredLengthOverTheLimit() throws Exception {
+        mockMvc.perform(put("/students/1/uploads/image")
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(new byte[11 * 1024 * 1024]))
+                .andExpect(status().isPayloadTooLarge());
+
+        verify(studentService, never()).modifyWithImage(anyLong(), any(), any(), any());
     }
 
     @Test
@@ -207,4 +500,25 @@ public class StudentControllerTest {
         mockMvc.perform(get("/students/1/uploads/image"))
                 .andExpect(status().isNotFound());
     }
+
+    /**
+     * Lets {@code modify} apply the controller's changes to {@code student}, as the real
+     * service does to the managed entity.
+     */
+    @SuppressWarnings("unchecked")
+    private void modifying(Student student) {
+        when(studentService.modify(eq(1L), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept(student);
+            return student;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void modifyingWithImage(Student student, String contentType) throws Exception {
+        when(studentService.modifyWithImage(eq(1L), any(), any(InputStream.class), eq(contentType)))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(1, Consumer.class).accept(student);
+                    return student;
+                });
+    }
 }
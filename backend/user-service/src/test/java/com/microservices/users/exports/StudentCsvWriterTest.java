@@ -0,0 +1,47 @@
+package com.microservices.users.exports;
+
+import com.microservices.commonstudent.models.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudentCsvWriterTest {
+
+    @Test
+    public void testQuote_OnlyWhenNeeded() {
+        assertEquals("", StudentCsvWriter.quote(null));
+        assertEquals("Doe", StudentCsvWriter.quote("Doe"));
+        assertEquals("\"Doe, Jr.\"", StudentCsvWriter.quote("Doe, Jr."));
+        assertEquals("\"The \"\"Rock\"\"\"", StudentCsvWriter.quote("The \"Rock\""));
+        assertEquals("Jean-Pierre", StudentCsvWriter.quote("Jean-Pierre"));
+    }
+
+    @Test
+    public void testQuote_NeutralizesFormulas() {
+        assertEquals("\"'=HYPERLINK(\"\"http://evil.example\"\",\"\"x\"\")\"",
+                StudentCsvWriter.quote("=HYPERLINK(\"http://evil.example\",\"x\")"));
+        assertEquals("\"'+1+1\"", StudentCsvWriter.quote("+1+1"));
+        assertEquals("\"'-2+3\"", StudentCsvWriter.quote("-2+3"));
+        assertEquals("\"'@SUM(A1:A2)\"", StudentCsvWriter.quote("@SUM(A1:A2)"));
+        assertEquals("\"'\tcmd\"", StudentCsvWriter.quote("\tcmd"));
+    }
+
+    @Test
+    public void testWrite_NeutralizesEveryTextColumn() {
+        Student student = new Student();
+        student.setId(7L);
+        student.setName("=1+1");
+        student.setLastName("@Doe");
+        student.setEmail("+john@example.com");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        StudentCsvWriter writer = new StudentCsvWriter(out);
+        writer.write(student);
+        writer.flush();
+
+        assertEquals("7,\"'=1+1\",\"'@Doe\",\"'+john@example.com\",\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,36 @@
+package com.microservices.users.imports;
+
+import com.microservices.commonstudent.models.entity.Student;
+import com.microservices.users.exports.StudentCsvWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudentRowsTest {
+
+    @Test
+    public void testCsv_LoadsBackFormulasNeutralizedByTheExport() throws Exception {
+        Student student = new Student();
+        student.setName("=1+1");
+        student.setLastName("'quoted");
+        student.setEmail("-john@example.com");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StudentCsvWriter writer = new StudentCsvWriter(out);
+        writer.writeHeader();
+        writer.write(student);
+        writer.flush();
+
+        StudentRows rows = new StudentRows.Csv(new BufferedReader(new StringReader(out.toString(StandardCharsets.UTF_8))));
+        Student loaded = rows.next().student;
+
+        assertEquals("=1+1", loaded.getName());
+        assertEquals("'quoted", loaded.getLastName());
+        assertEquals("-john@example.com", loaded.getEmail());
+        assertNull(rows.next());
+    }
+}
@@ -0,0 +1,115 @@
+package com.microservices.users.search;
+
+import com.microservices.users.models.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StudentSuggestionIndexTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StudentSuggestionIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new StudentSuggestionIndex(studentRepository, transactionManager, Runnable::run);
+        when(studentRepository.streamSearchRowsBy()).thenReturn(Stream.of(
+                new StudentSearchRow(1L, "José", "García", "jose.garcia@example.com"),
+                new StudentSearchRow(2L, "John", "Doe", "john.doe@example.com"),
+                new StudentSearchRow(3L, "Jean-Pierre", "Dupont", "jp@example.com")));
+        index.loadInBackground();
+    }
+
+    @Test
+    public void testSuggest_MatchesWordPrefixesIgnoringCaseAndAccents() {
+        assertThat(index.isReady()).isTrue();
+        assertThat(ids(index.suggest("JOSE", 10))).containsExactly(1L);
+        assertThat(ids(index.suggest("gar", 10))).containsExactly(1L);
+        assertThat(ids(index.suggest("j", 10))).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(ids(index.suggest("j", 2))).hasSize(2);
+        assertThat(index.suggest("john", 10).get(0).getDisplayName()).isEqualTo("John Doe");
+    }
+
+    @Test
+    public void testSuggest_MatchesEmailsHyphenatedNamesAndEveryWord() {
+        assertThat(ids(index.suggest("john.d", 10))).containsExactly(2L);
+        assertThat(ids(index.suggest("pierre", 10))).containsExactly(3L);
+        assertThat(ids(index.suggest("jean-p", 10))).containsExactly(3L);
+        assertThat(ids(index.suggest("j dup", 10))).containsExactly(3L);
+        assertThat(index.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    public void testRefresh_ReplacesRenamedAndDropsDeletedStudents() {
+        when(studentRepository.findSearchRowsByIdIn(List.of(2L, 3L)))
+                .thenReturn(List.of(new StudentSearchRow(2L, "Johnny", "Walker", "johnny@example.com")));
+
+        index.refresh(List.of(2L, 3L));
+
+        assertThat(ids(index.suggest("doe", 10))).isEmpty();
+        assertThat(ids(index.suggest("walk", 10))).containsExactly(2L);
+        assertThat(ids(index.suggest("pierre", 10))).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testLoad_PicksUpWritesMadeByOtherInstances() {
+        when(studentRepository.streamSearchRowsBy()).thenReturn(Stream.of(
+                new StudentSearchRow(1L, "José", "García", "jose.garcia@example.com"),
+                new StudentSearchRow(2L, "Johnny", "Walker", "johnny@example.com"),
+                new StudentSearchRow(4L, "Ana", "López", "ana@example.com")));
+
+        index.resync();
+
+        assertThat(ids(index.suggest("gar", 10))).containsExactly(1L);
+        assertThat(ids(index.suggest("doe", 10))).isEmpty();
+        assertThat(ids(index.suggest("walk", 10))).containsExactly(2L);
+        assertThat(ids(index.suggest("pierre", 10))).isEmpty();
+        assertThat(ids(index.suggest("lopez", 10))).containsExactly(4L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testLoad_LeavesStudentsWrittenDuringTheScanAlone() {
+        StudentSearchRow renamed = new StudentSearchRow(2L, "Johnny", "Walker", "johnny@example.com");
+        StudentSearchRow created = new StudentSearchRow(5L, "Eva", "Martínez", "eva@example.com");
+        // the scan reads the old row of student 2 after this instance committed its rename
+        when(studentRepository.streamSearchRowsBy()).thenReturn(Stream.of(
+                        new StudentSearchRow(1L, "José", "García", "jose.garcia@example.com"),
+                        new StudentSearchRow(2L, "John", "Doe", "john.doe@example.com"),
+                        new StudentSearchRow(3L, "Jean-Pierre", "Dupont", "jp@example.com"))
+                .peek(row -> {
+                    if (row.getId() == 1L) {
+                        index.put(renamed);
+                        index.put(created);
+                    }
+                }));
+
+        index.resync();
+
+        assertThat(ids(index.suggest("walk", 10))).containsExactly(2L);
+        assertThat(ids(index.suggest("doe", 10))).isEmpty();
+        assertThat(ids(index.suggest("eva", 10))).containsExactly(5L);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    private static List<Long> ids(List<StudentSuggestion> suggestions) {
+        return suggestions.stream().map(StudentSuggestion::getId).collect(Collectors.toList());
+    }
+}
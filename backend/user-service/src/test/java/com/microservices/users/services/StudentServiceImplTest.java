@@ -4,6 +4,8 @@ import com.microservices.commonstudent.models.entity.Student;
 import com.microservices.commonservice.exceptions.ResourceNotFoundException;
 import com.microservices.users.clients.CourseFeignClient;
 import com.microservices.users.models.repository.StudentRepository;
+import com.microservices.users.search.StudentSuggestionIndex;
+import com.microservices.users.storage.StudentImageStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,25 +15,39 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class StudentServiceImplTest {
 
+    private static final String DIGEST = "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
+
     @Mock
     private StudentRepository studentRepository;
 
     @Mock
     private CourseFeignClient courseFeignClient;
 
+    @Mock
+    private StudentImageStore imageStore;
+
+    @Mock
+    private StudentSuggestionIndex suggestionIndex;
+
     @InjectMocks
     private StudentServiceImpl studentService;
 
@@ -44,7 +60,7 @@ public class StudentServiceImplTest {
         sampleStudent.setName("John");
         sampleStudent.setLastName("Doe");
         sampleStudent.setEmail("john.doe@example.com");
-        sampleStudent.setImage(new byte[]{1, 2, 3});
+        sampleStudent.setImageDigest(DIGEST);
 
         // Injecter le repository dans la classe parent CommonServiceImpl
         Field repositoryField = studentService.getClass().getSuperclass().getDeclaredField("repository");
@@ -159,13 +175,52 @@ public class StudentServiceImplTest {
     public void testDeleteById_Success() {
         doNothing().when(studentRepository).deleteById(1L);
         doNothing().when(courseFeignClient).deleteCourseByStudentId(1L);
+        when(studentRepository.findImageDigestById(1L)).thenReturn(Optional.of(DIGEST));
+        when(studentRepository.countByImageDigest(DIGEST)).thenReturn(0L);
+        when(imageStore.deleteIfUnused(eq(DIGEST), any()))
+                .thenAnswer(invocation -> invocation.<BooleanSupplier>getArgument(1).getAsBoolean());
 
         studentService.deleteById(1L);
 
         verify(studentRepository, times(1)).deleteById(1L);
+        verify(imageStore, times(1)).deleteIfUnused(eq(DIGEST), any());
         verify(courseFeignClient, times(1)).deleteCourseByStudentId(1L);
     }
 
+    @Test
+    public void testDeleteById_ImageIsDeletedOnlyAfterCommit() {
+        when(studentRepository.findImageDigestById(1L)).thenReturn(Optional.of(DIGEST));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            studentService.deleteById(1L);
+
+            verify(courseFeignClient, times(1)).deleteCourseByStudentId(1L);
+            verifyNoInteractions(imageStore);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(imageStore, times(1)).deleteIfUnused(eq(DIGEST), any());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testDeleteById_FailedCourseCallKeepsTheImage() {
+        when(studentRepository.findImageDigestById(1L)).thenReturn(Optional.of(DIGEST));
+        doThrow(new IllegalStateException("course-service down")).when(courseFeignClient).deleteCourseByStudentId(1L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(IllegalStateException.class, () -> studentService.deleteById(1L));
+
+            // the transaction rolls back, so afterCommit never runs
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            verifyNoInteractions(imageStore);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     public void testDeleteCourseStudentById_Success() {
         doNothing().when(courseFeignClient).deleteCourseByStudentId(1L);
@@ -174,4 +229,29 @@ public class StudentServiceImplTest {
 
         verify(courseFeignClient, times(1)).deleteCourseByStudentId(1L);
     }
+
+    @Test
+    public void testFindAllByIdInOrder_QueriesChunksInParallelAndKeepsOrder() {
+        when(studentRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Student> found = new ArrayList<>();
+            Iterable<Long> chunk = invocation.getArgument(0);
+            chunk.forEach(id -> {
+                assertTrue(Thread.currentThread().getName().startsWith("student-lookup-"));
+                Student student = new Student();
+                student.setId(id);
+                found.add(0, student);
+            });
+            return found;
+        });
+        List<Long> ids = new ArrayList<>();
+        for (long id = 2_000; id > 0; id--) {
+            ids.add(id);
+        }
+
+        List<Long> result = new ArrayList<>();
+        studentService.findAllByIdInOrder(ids, student -> result.add(student.getId()));
+
+        assertEquals(ids, result);
+        verify(studentRepository, times(4)).findAllById(anyIterable());
+    }
 }
@@ -3,7 +3,14 @@ package com.microservices.users.services;
 import com.microservices.commonstudent.models.entity.Student;
 import com.microservices.users.clients.CourseFeignClient;
 import com.microservices.users.config.TestContainersConfig;
+import com.microservices.users.exceptions.ImageTooLargeException;
+import com.microservices.users.exceptions.InvalidImportException;
+import com.microservices.users.imports.StudentImportError;
+import com.microservices.users.imports.StudentImportProgress;
+import com.microservices.users.imports.StudentImportService;
+import com.microservices.users.models.repository.StudentImageRepository;
 import com.microservices.users.models.repository.StudentRepository;
+import com.microservices.users.storage.StudentImageProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,15 +20,30 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
@@ -36,6 +58,15 @@ public class StudentServiceIntegrationTest {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private StudentImageRepository studentImageRepository;
+
+    @Autowired
+    private StudentImageProperties imageProperties;
+
+    @Autowired
+    private StudentImportService importService;
+
     @MockBean
     private CourseFeignClient courseFeignClient;
 
@@ -76,6 +107,38 @@ public class StudentServiceIntegrationTest {
         assertThat(result.get(0).getEmail()).isEqualTo("john.doe@example.com");
     }
 
+    @Test
+    void shouldSearchCaseInsensitivelyAndTakeWildcardsLiterally() {
+        Student student = student("john.doe@example.com");
+        student.setLastName("Doe_Smith");
+        studentRepository.save(student);
+        studentRepository.save(student("jane.doe@example.com"));
+
+        assertThat(studentService.findByNameAndLastName("oe_s")).hasSize(1);
+        assertThat(studentService.findByNameAndLastName("JOHN")).hasSize(2);
+        assertThat(studentService.findByNameAndLastName("%")).isEmpty();
+    }
+
+    @Test
+    void shouldLookUpIdsInChunksAndKeepTheirOrder() {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < StudentServiceImpl.LOOKUP_CHUNK_SIZE + 10; i++) {
+            students.add(student("student" + i + "@example.com"));
+        }
+        studentRepository.saveAll(students);
+        List<Long> ids = new ArrayList<>();
+        for (int i = students.size() - 1; i >= 0; i--) {
+            ids.add(students.get(i).getId());
+        }
+        ids.add(0, -1L);
+        ids.add(ids.get(1));
+
+        List<Long> found = new ArrayList<>();
+        studentService.findAllByIdInOrder(ids, student -> found.add(student.getId()));
+
+        assertThat(found).isEqualTo(ids.subList(1, ids.size() - 1));
+    }
+
     @Test
     void shouldFindAllById() {
         Student student1 = new Student();
@@ -111,6 +174,187 @@ public class StudentServiceIntegrationTest {
         verify(courseFeignClient).deleteCourseByStudentId(student.getId());
     }
 
+    @Test
+    void shouldKeepImageOutOfTheStudentRow() throws Exception {
+        byte[] image = "image content".getBytes(StandardCharsets.UTF_8);
+
+        Student saved = studentService.saveWithImage(student("john.doe@example.com"),
+                new ByteArrayInputStream(image), "image/png");
+
+        assertThat(saved.getImageSize()).isEqualTo(image.length);
+        assertThat(saved.getImageContentType()).isEqualTo("image/png");
+        assertThat(saved.getImageDigest())
+                .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image)));
+        assertThat(saved.getImageHashCode()).isNotNull();
+        assertThat(studentService.findImage(saved).orElseThrow().getInputStream().readAllBytes()).isEqualTo(image);
+    }
+
+    @Test
+    void shouldStreamLargeImagesAndRejectThoseOverTheLimit() throws Exception {
+        byte[] image = new byte[300 * 1024];
+        new Random(1).nextBytes(image);
+
+        Student saved = studentService.saveWithImage(student("john.doe@example.com"),
+                new ByteArrayInputStream(image), "image/jpeg");
+
+        assertThat(saved.getImageSize()).isEqualTo(image.length);
+        assertThat(studentService.findImage(saved).orElseThrow().getInputStream().readAllBytes()).isEqualTo(image);
+
+        DataSize maxSize = imageProperties.getMaxSize();
+        imageProperties.setMaxSize(DataSize.ofKilobytes(100));
+        try {
+            assertThatThrownBy(() -> studentService.saveWithImage(student("jane.doe@example.com"),
+                    new ByteArrayInputStream(image), "image/jpeg"))
+                    .isInstanceOf(ImageTooLargeException.class);
+        } finally {
+            imageProperties.setMaxSize(maxSize);
+        }
+    }
+
+    @Test
+    void shouldDetectImageTypeFromContent() throws Exception {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+        byte[] html = "<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8);
+
+        Student john = studentService.saveWithImage(student("john.doe@example.com"),
+                new ByteArrayInputStream(png), "image/jpeg");
+        Student jane = studentService.saveWithImage(student("jane.doe@example.com"),
+                new ByteArrayInputStream(html), "text/html");
+
+        assertThat(john.getImageContentType()).isEqualTo("image/png");
+        assertThat(john.getImageSize()).isEqualTo(png.length);
+        assertThat(jane.getImageContentType()).isEqualTo("application/octet-stream");
+    }
+
+    /**
+     * Unused images are deleted once the delete commits, so this one commits for real.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldStoreIdenticalImagesOnceAndDeleteThemWhenUnused() throws Exception {
+        byte[] image = "image content".getBytes(StandardCharsets.UTF_8);
+        Student john = studentService.saveWithImage(student("john.doe@example.com"),
+                new ByteArrayInputStream(image), "image/png");
+        Student jane = studentService.saveWithImage(student("jane.doe@example.com"),
+                new ByteArrayInputStream(image), "image/png");
+        String digest = john.getImageDigest();
+
+        assertThat(jane.getImageDigest()).isEqualTo(digest);
+        assertThat(studentImageRepository.count()).isEqualTo(1);
+
+        doNothing().when(courseFeignClient).deleteCourseByStudentId(anyLong());
+        studentService.deleteById(john.getId());
+        assertThat(studentImageRepository.existsById(digest)).isTrue();
+
+        studentService.deleteById(jane.getId());
+        assertThat(studentImageRepository.existsById(digest)).isFalse();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldKeepTheImageWhenTheDeleteRollsBack() throws Exception {
+        Student john = studentService.saveWithImage(student("john.doe@example.com"),
+                new ByteArrayInputStream("image content".getBytes(StandardCharsets.UTF_8)), "image/png");
+
+        doThrow(new IllegalStateException("course-service down")).when(courseFeignClient).deleteCourseByStudentId(anyLong());
+        assertThatThrownBy(() -> studentService.deleteById(john.getId())).isInstanceOf(IllegalStateException.class);
+        assertThat(studentRepository.existsById(john.getId())).isTrue();
+        assertThat(studentImageRepository.existsById(john.getImageDigest())).isTrue();
+
+        doNothing().when(courseFeignClient).deleteCourseByStudentId(anyLong());
+        studentService.deleteById(john.getId());
+        assertThat(studentImageRepository.existsById(john.getImageDigest())).isFalse();
+    }
+
+    /**
+     * Committed, so the variants are made in the background as they are for an upload.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldMakeResizedVariantsAndDeleteThemWithTheImage() throws Exception {
+        BufferedImage picture = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(picture, "png", png);
+        Student saved = studentService.saveWithImage(student("john.doe@example.com"),
+                new ByteArrayInputStream(png.toByteArray()), "image/png");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (studentImageRepository.count() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        BufferedImage thumbnail = ImageIO.read(studentService.findImageVariant(saved, 64).orElseThrow().getInputStream());
+        assertThat(thumbnail.getWidth()).isEqualTo(64);
+        assertThat(thumbnail.getHeight()).isEqualTo(32);
+        BufferedImage large = ImageIO.read(studentService.findImageVariant(saved, 1024).orElseThrow().getInputStream());
+        assertThat(large.getWidth()).isEqualTo(800);
+        assertThat(studentImageRepository.count()).isEqualTo(4);
+
+        doNothing().when(courseFeignClient).deleteCourseByStudentId(anyLong());
+        studentService.deleteById(saved.getId());
+        assertThat(studentImageRepository.count()).isZero();
+    }
+
+    @Test
+    void shouldImportCsvAndReportRejectedRows() throws Exception {
+        studentRepository.save(student("taken@example.com"));
+        String csv = "\uFEFFEmail;Last_Name;Name\n"
+                + "ana@example.com;\"García; López\";Ana\n"
+                + "\n"
+                + "not-an-email;Pérez;Luis\n"
+                + "taken@example.com;DoeSmith;John\n"
+                + "ana@example.com;Again;Ana\n"
+                + "eva@example.com;Martínez;Eva\n";
+
+        List<Object> events = new ArrayList<>();
+        StudentImportProgress done = importService.importRows(
+                importService.open(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                        MediaType.parseMediaType("text/csv; charset=UTF-8")), events::add);
+
+        assertThat(done.isDone()).isTrue();
+        assertThat(done.getProcessed()).isEqualTo(5);
+        assertThat(done.getImported()).isEqualTo(2);
+        assertThat(done.getFailed()).isEqualTo(3);
+        assertThat(events).last().isSameAs(done);
+        assertThat(events).filteredOn(StudentImportError.class::isInstance)
+                .extracting(event -> ((StudentImportError) event).getRow())
+                .containsExactlyInAnyOrder(3L, 4L, 5L);
+        assertThat(studentService.findByNameAndLastName("lópez"))
+                .extracting(Student::getEmail).containsExactly("ana@example.com");
+        assertThat(studentRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldImportNdjsonAndRefuseCsvWithoutRequiredColumns() throws Exception {
+        String ndjson = "{\"name\":\"Ana\",\"lastName\":\"García\",\"email\":\"ana@example.com\"}\n"
+                + "{\"name\":\"Luis\",\n"
+                + "{\"id\":7,\"name\":\"Eva\",\"lastName\":\"Martínez\",\"email\":\"eva@example.com\"}\n";
+
+        List<Object> events = new ArrayList<>();
+        StudentImportProgress done = importService.importRows(
+                importService.open(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                        MediaType.APPLICATION_NDJSON), events::add);
+
+        assertThat(done.getImported()).isEqualTo(2);
+        assertThat(events).filteredOn(StudentImportError.class::isInstance).singleElement()
+                .satisfies(event -> assertThat(((StudentImportError) event).getErrors()).containsKey("row"));
+        assertThat(studentRepository.findAll()).extracting(Student::getId).doesNotContain(7L);
+
+        assertThatThrownBy(() -> importService.open(
+                new ByteArrayInputStream("name,email\nAna,ana@example.com\n".getBytes(StandardCharsets.UTF_8)),
+                MediaType.parseMediaType("text/csv")))
+                .isInstanceOf(InvalidImportException.class)
+                .hasMessageContaining("lastname");
+    }
+
+    private Student student(String email) {
+        Student student = new Student();
+        student.setName("John");
+        student.setLastName("DoeSmith");
+        student.setEmail(email);
+        return student;
+    }
+
     @Test
     void shouldSaveStudent() {
         Student student = new Student();
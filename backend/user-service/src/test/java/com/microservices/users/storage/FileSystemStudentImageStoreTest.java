@@ -0,0 +1,74 @@
+package com.microservices.users.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSystemStudentImageStoreTest {
+
+    private static final byte[] IMAGE = "not really a png".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private FileSystemStudentImageStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        StudentImageProperties properties = new StudentImageProperties();
+        properties.setDir(directory.toString());
+        store = new FileSystemStudentImageStore(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testDeleteIfUnused_DeletesAnUnusedImage() throws IOException {
+        String digest = store.put(new ByteArrayInputStream(IMAGE)).getDigest();
+
+        assertTrue(store.deleteIfUnused(digest, () -> true));
+        assertTrue(store.get(digest).isEmpty());
+    }
+
+    @Test
+    public void testDeleteIfUnused_KeepsAnImageStillReferenced() throws IOException {
+        String digest = store.put(new ByteArrayInputStream(IMAGE)).getDigest();
+
+        assertFalse(store.deleteIfUnused(digest, () -> false));
+        assertTrue(store.get(digest).isPresent());
+    }
+
+    @Test
+    public void testDeleteIfUnused_KeepsAnImageReuploadedByAnUncommittedTransaction() throws IOException {
+        String digest = store.put(new ByteArrayInputStream(IMAGE)).getDigest();
+
+        // a second upload of the same content, whose student row is not committed yet
+        TransactionSynchronizationManager.initSynchronization();
+        store.put(new ByteArrayInputStream(IMAGE));
+
+        assertFalse(store.deleteIfUnused(digest, () -> true));
+        assertTrue(store.get(digest).isPresent());
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertTrue(store.deleteIfUnused(digest, () -> true));
+        assertTrue(store.get(digest).isEmpty());
+    }
+}
@@ -8,5 +8,6 @@ export class Exam {
     questions: Question[] = [];
     subjectFather: Subject;
     subjectChildren: Subject;
-    replied: boolean;
+    // null when answer-service did not answer in time
+    replied: boolean | null;
 }
@@ -24,3 +24,23 @@ INSERT INTO courses (name, description, created_at) VALUES
 INSERT INTO exams (name, subject_id) VALUES
 ('Exam 1', 1),
 ('Exam 2', 2);
+
+-- Tables de séquence (Hibernate, allocationSize = 50, optimiseur pooled-lo).
+-- next_val est le premier id du prochain bloc : il doit dépasser le max(id) existant.
+-- Ce script initialise une base vide : les autres tables n'existent pas encore, seules
+-- courses et exams sont alignées ici. Sur une base existante, exécuter
+-- microservices_db_mysql_sequences.sql, qui aligne toutes les séquences.
+CREATE TABLE IF NOT EXISTS courses_seq (next_val BIGINT);
+CREATE TABLE IF NOT EXISTS courses_students_seq (next_val BIGINT);
+CREATE TABLE IF NOT EXISTS exams_seq (next_val BIGINT);
+CREATE TABLE IF NOT EXISTS questions_seq (next_val BIGINT);
+CREATE TABLE IF NOT EXISTS subjects_seq (next_val BIGINT);
+
+INSERT INTO courses_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM courses_seq);
+INSERT INTO courses_students_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM courses_students_seq);
+INSERT INTO exams_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM exams_seq);
+INSERT INTO questions_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM questions_seq);
+INSERT INTO subjects_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM subjects_seq);
+
+UPDATE courses_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM courses));
+UPDATE exams_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM exams));
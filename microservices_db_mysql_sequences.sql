@@ -0,0 +1,24 @@
+-- Mise à niveau d'une base existante vers les identifiants par séquence
+-- (Hibernate, allocationSize = 50, optimiseur pooled-lo).
+-- À exécuter une fois que course-service et exam-service ont créé leurs tables
+-- (ddl-auto=update) : chaque next_val est porté au-delà du max(id) de sa table.
+-- Le script est idempotent et peut être rejoué.
+SET NAMES utf8mb4;
+
+CREATE TABLE IF NOT EXISTS courses_seq (next_val BIGINT);
+CREATE TABLE IF NOT EXISTS courses_students_seq (next_val BIGINT);
+CREATE TABLE IF NOT EXISTS exams_seq (next_val BIGINT);
+CREATE TABLE IF NOT EXISTS questions_seq (next_val BIGINT);
+CREATE TABLE IF NOT EXISTS subjects_seq (next_val BIGINT);
+
+INSERT INTO courses_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM courses_seq);
+INSERT INTO courses_students_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM courses_students_seq);
+INSERT INTO exams_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM exams_seq);
+INSERT INTO questions_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM questions_seq);
+INSERT INTO subjects_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM subjects_seq);
+
+UPDATE courses_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM courses));
+UPDATE courses_students_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM courses_students));
+UPDATE exams_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM exams));
+UPDATE questions_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM questions));
+UPDATE subjects_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM subjects));
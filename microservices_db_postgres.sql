@@ -3,10 +3,12 @@ SET standard_conforming_strings = on;
 SET timezone = '+00:00';
 
 -- Supprimer la table si elle existe
+DROP TABLE IF EXISTS student_images;
 DROP TABLE IF EXISTS students;
 
--- Créer une séquence pour l'identifiant
-CREATE SEQUENCE students_id_seq;
+-- Créer une séquence pour l'identifiant ; Hibernate en réserve des blocs de 500
+-- (allocationSize de Student), l'incrément doit donc être le même
+CREATE SEQUENCE students_id_seq INCREMENT BY 500;
 
 -- Créer la table students
 CREATE TABLE students (
@@ -15,14 +17,44 @@ CREATE TABLE students (
     last_name VARCHAR(90) NOT NULL,
     email VARCHAR(90) NOT NULL,
     created_at TIMESTAMP,
-    image BYTEA,
+    image_size BIGINT,
+    image_content_type VARCHAR(100),
+    image_digest VARCHAR(64),
     CONSTRAINT uk_students_email UNIQUE (email)
 );
 
+CREATE INDEX idx_students_image_digest ON students (image_digest);
+
+-- Recherche par sous-chaîne (lower(name) LIKE '%texte%') servie par des index trigrammes
+-- au lieu d'un parcours complet de la table ; efficace dès 3 caractères saisis.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_students_name_trgm ON students USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX idx_students_last_name_trgm ON students USING gin (lower(last_name) gin_trgm_ops);
+
+-- Images des étudiants, hors de la table students et dédupliquées par SHA-256
+-- (students.images.store=database), et leurs variantes redimensionnées sous
+-- « digest-taille ». COLLATE "C" permet au LIKE 'digest-%' d'utiliser la clé primaire.
+CREATE TABLE student_images (
+    digest VARCHAR(80) COLLATE "C" NOT NULL PRIMARY KEY,
+    data BYTEA NOT NULL
+);
+
 -- Données initiales
-INSERT INTO students (name, last_name, email, created_at, image) VALUES
-('Alice', 'Smith', 'alice@example.com', '2023-01-01 10:00:00', NULL),
-('Bob', 'Jones', 'bob@example.com', '2023-01-02 15:00:00', NULL);
+INSERT INTO students (name, last_name, email, created_at) VALUES
+('Alice', 'Smith', 'alice@example.com', '2023-01-01 10:00:00'),
+('Bob', 'Jones', 'bob@example.com', '2023-01-02 15:00:00');
 
 -- Définir la séquence comme propriété de la colonne id
 ALTER SEQUENCE students_id_seq OWNED BY students.id;
+
+-- Migration d'une base existante où les images sont encore dans students.image
+-- (PostgreSQL 11+ ; si la colonne est de type oid, remplacer image par lo_get(image)) :
+-- INSERT INTO student_images (digest, data)
+--     SELECT DISTINCT ON (1) encode(sha256(image), 'hex'), image FROM students WHERE image IS NOT NULL;
+-- UPDATE students SET image_size = length(image), image_content_type = 'image/jpeg',
+--        image_digest = encode(sha256(image), 'hex') WHERE image IS NOT NULL;
+-- ALTER TABLE students DROP COLUMN image;
+
+-- Base existante dont la séquence avance de 1 :
+-- ALTER SEQUENCE students_id_seq INCREMENT BY 500;
+-- SELECT setval('students_id_seq', (SELECT COALESCE(max(id), 0) + 1 FROM students), false);